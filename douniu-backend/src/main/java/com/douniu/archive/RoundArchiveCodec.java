@@ -0,0 +1,174 @@
+package com.douniu.archive;
+
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.GameRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 对局归档文件编解码（列式存储 + GZIP压缩）
+ *
+ * 文件布局：[魔数][版本][对局数][对局各列][详情数][详情各列]
+ * 同一列的值连续存放（房间ID、局数、牌型编码等重复度很高），压缩率远高于按行存放
+ */
+public final class RoundArchiveCodec {
+
+    private static final int MAGIC = 0x444E5241; // "DNRA"
+    private static final int VERSION = 1;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private RoundArchiveCodec() {
+    }
+
+    /**
+     * 归档分区：一个归档文件中的对局记录和对局详情
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Partition {
+        private List<GameRecord> records;
+        private List<GameDetail> details;
+    }
+
+    public static void write(Partition partition, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(target)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        List<GameRecord> records = partition.getRecords();
+        out.writeInt(records.size());
+        writeLongs(out, records, GameRecord::getId);
+        writeLongs(out, records, GameRecord::getRoomId);
+        writeInts(out, records, GameRecord::getRoundNumber);
+        writeLongs(out, records, GameRecord::getDealerId);
+        writeInts(out, records, GameRecord::getStatus);
+        writeLongs(out, records, r -> toMillis(r.getStartTime()));
+        writeLongs(out, records, r -> toMillis(r.getEndTime()));
+
+        List<GameDetail> details = partition.getDetails();
+        out.writeInt(details.size());
+        writeLongs(out, details, GameDetail::getId);
+        writeLongs(out, details, GameDetail::getGameRecordId);
+        writeLongs(out, details, GameDetail::getUserId);
+        writeInts(out, details, GameDetail::getSeatNumber);
+        writeInts(out, details, GameDetail::getBetAmount);
+        for (GameDetail detail : details) {
+            out.writeUTF(detail.getCards() != null ? detail.getCards() : "");
+        }
+        writeInts(out, details, GameDetail::getCardTypeCode);
+        writeInts(out, details, GameDetail::getStrength);
+        writeInts(out, details, GameDetail::getScoreChange);
+        writeInts(out, details, GameDetail::getIsWinner);
+        out.flush();
+        out.close();
+    }
+
+    public static Partition read(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(source)));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是对局归档文件");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的归档文件版本: " + version);
+        }
+
+        int recordCount = in.readInt();
+        List<GameRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            records.add(new GameRecord());
+        }
+        for (GameRecord r : records) {
+            r.setId(in.readLong());
+        }
+        for (GameRecord r : records) {
+            r.setRoomId(in.readLong());
+        }
+        for (GameRecord r : records) {
+            r.setRoundNumber(in.readInt());
+        }
+        for (GameRecord r : records) {
+            r.setDealerId(in.readLong());
+        }
+        for (GameRecord r : records) {
+            r.setStatus(in.readInt());
+        }
+        for (GameRecord r : records) {
+            r.setStartTime(fromMillis(in.readLong()));
+        }
+        for (GameRecord r : records) {
+            r.setEndTime(fromMillis(in.readLong()));
+        }
+
+        int detailCount = in.readInt();
+        List<GameDetail> details = new ArrayList<>(detailCount);
+        for (int i = 0; i < detailCount; i++) {
+            details.add(new GameDetail());
+        }
+        for (GameDetail d : details) {
+            d.setId(in.readLong());
+        }
+        for (GameDetail d : details) {
+            d.setGameRecordId(in.readLong());
+        }
+        for (GameDetail d : details) {
+            d.setUserId(in.readLong());
+        }
+        for (GameDetail d : details) {
+            d.setSeatNumber(in.readInt());
+        }
+        for (GameDetail d : details) {
+            d.setBetAmount(in.readInt());
+        }
+        for (GameDetail d : details) {
+            d.setCards(in.readUTF());
+        }
+        for (GameDetail d : details) {
+            d.setCardTypeCode(in.readInt());
+        }
+        for (GameDetail d : details) {
+            d.setStrength(in.readInt());
+        }
+        for (GameDetail d : details) {
+            d.setScoreChange(in.readInt());
+        }
+        for (GameDetail d : details) {
+            d.setIsWinner(in.readInt());
+        }
+        in.close();
+
+        return new Partition(records, details);
+    }
+
+    private static <T> void writeLongs(DataOutputStream out, List<T> rows, Function<T, Long> column) throws IOException {
+        for (T row : rows) {
+            Long value = column.apply(row);
+            out.writeLong(value != null ? value : 0L);
+        }
+    }
+
+    private static <T> void writeInts(DataOutputStream out, List<T> rows, Function<T, Integer> column) throws IOException {
+        for (T row : rows) {
+            Integer value = column.apply(row);
+            out.writeInt(value != null ? value : 0);
+        }
+    }
+
+    private static Long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZONE).toInstant().toEpochMilli() : -1L;
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis >= 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE) : null;
+    }
+}
@@ -0,0 +1,286 @@
+package com.douniu.archive;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.GameRecord;
+import com.douniu.entity.RoomArchive;
+import com.douniu.enums.RoundStatus;
+import com.douniu.mapper.GameDetailMapper;
+import com.douniu.mapper.GameRecordMapper;
+import com.douniu.mapper.RoomArchiveMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 对局冷数据归档
+ *
+ * 定时把结束时间早于指定天数的已结算对局（game_record + game_detail）按开始日期分区写入本地压缩列式文件，
+ * 并从热表中删除，房间与归档文件的对应关系记录在 room_archive 表中。
+ * 历史查询在热表中查不到时，通过 room_archive 找到归档文件读取。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoundArchiveService {
+
+    private final GameRecordMapper gameRecordMapper;
+    private final GameDetailMapper gameDetailMapper;
+    private final RoomArchiveMapper roomArchiveMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // 分页读取归档时每次查询的归档索引条数
+    private static final int PAGE_INDEX_BATCH = 8;
+
+    @Value("${douniu.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${douniu.archive.dir:data/archive}")
+    private String archiveDir;
+
+    @Value("${douniu.archive.min-age-days:30}")
+    private int minAgeDays;
+
+    @Value("${douniu.archive.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 归档已结算的旧对局
+     */
+    @Scheduled(cron = "${douniu.archive.cron:0 30 4 * * ?}")
+    public void archiveSettledRounds() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(minAgeDays);
+        int total = 0;
+        try {
+            while (true) {
+                LambdaQueryWrapper<GameRecord> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(GameRecord::getStatus, RoundStatus.SETTLED.getCode())
+                        .lt(GameRecord::getEndTime, before)
+                        .orderByAsc(GameRecord::getId)
+                        .last("LIMIT " + batchSize);
+                List<GameRecord> records = gameRecordMapper.selectList(wrapper);
+                if (records.isEmpty()) {
+                    break;
+                }
+                archiveBatch(records);
+                total += records.size();
+                if (records.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("归档对局失败，已归档: {}", total, e);
+            return;
+        }
+        if (total > 0) {
+            log.info("对局归档完成 - 归档对局数: {}, 截止时间: {}", total, before);
+        }
+    }
+
+    /**
+     * 归档一批对局：先写归档文件，再在同一事务中写入索引并删除热表数据
+     * 如果事务失败，下次归档会重新写入新的文件，读取时按对局ID去重
+     */
+    private void archiveBatch(List<GameRecord> records) throws IOException {
+        List<Long> recordIds = records.stream().map(GameRecord::getId).collect(Collectors.toList());
+        LambdaQueryWrapper<GameDetail> detailWrapper = new LambdaQueryWrapper<>();
+        detailWrapper.in(GameDetail::getGameRecordId, recordIds);
+        Map<Long, List<GameDetail>> detailsByRecord = gameDetailMapper.selectList(detailWrapper).stream()
+                .collect(Collectors.groupingBy(GameDetail::getGameRecordId));
+
+        // 按对局开始日期分区
+        Map<LocalDate, List<GameRecord>> recordsByDate = records.stream()
+                .collect(Collectors.groupingBy(r -> r.getStartTime().toLocalDate(), TreeMap::new, Collectors.toList()));
+
+        List<RoomArchive> index = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<GameRecord>> entry : recordsByDate.entrySet()) {
+            List<GameRecord> partitionRecords = entry.getValue();
+            List<GameDetail> partitionDetails = new ArrayList<>();
+            for (GameRecord record : partitionRecords) {
+                partitionDetails.addAll(detailsByRecord.getOrDefault(record.getId(), List.of()));
+            }
+
+            String filePath = entry.getKey() + "/rounds-" + System.currentTimeMillis() + "-" + partitionRecords.get(0).getId() + ".col.gz";
+            Path file = Paths.get(archiveDir).resolve(filePath);
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                RoundArchiveCodec.write(new RoundArchiveCodec.Partition(partitionRecords, partitionDetails), out);
+            }
+
+            // 每个房间在该文件中对应一条索引
+            Map<Long, List<GameRecord>> recordsByRoom = partitionRecords.stream()
+                    .collect(Collectors.groupingBy(GameRecord::getRoomId));
+            for (Map.Entry<Long, List<GameRecord>> roomEntry : recordsByRoom.entrySet()) {
+                RoomArchive archive = new RoomArchive();
+                archive.setRoomId(roomEntry.getKey());
+                archive.setArchiveDate(entry.getKey());
+                archive.setFilePath(filePath);
+                archive.setMinRecordId(roomEntry.getValue().stream().mapToLong(GameRecord::getId).min().orElse(0));
+                archive.setMaxRecordId(roomEntry.getValue().stream().mapToLong(GameRecord::getId).max().orElse(0));
+                archive.setRoundCount(roomEntry.getValue().size());
+                index.add(archive);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (RoomArchive archive : index) {
+                roomArchiveMapper.insert(archive);
+            }
+            gameDetailMapper.delete(detailWrapper);
+            gameRecordMapper.deleteBatchIds(recordIds);
+        });
+    }
+
+    /**
+     * 读取房间的归档数据（对局按局数升序）
+     */
+    public RoundArchiveCodec.Partition getRoomArchive(Long roomId) {
+        LambdaQueryWrapper<RoomArchive> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(RoomArchive::getRoomId, roomId);
+        List<RoomArchive> archives = roomArchiveMapper.selectList(wrapper);
+        RoundArchiveCodec.Partition partition = readArchives(archives, record -> record.getRoomId().equals(roomId));
+        partition.getRecords().sort(Comparator.comparing(GameRecord::getRoundNumber));
+        return partition;
+    }
+
+    /**
+     * 读取房间中游标之后的一页已归档对局（对局按局数、对局ID升序，最多 limit 局）
+     * 同一房间内对局ID与局数的顺序一致：只读取最大对局ID在游标之后的归档文件，按最小对局ID依次读取，
+     * 凑够一页且下一个文件的对局都排在本页之后时停止，读取的文件数与房间的归档总量无关
+     */
+    public RoundArchiveCodec.Partition getRoomArchivePage(Long roomId, int afterRound, long afterId, int limit) {
+        TreeMap<Long, GameRecord> records = new TreeMap<>();
+        List<GameDetail> details = new ArrayList<>();
+        int offset = 0;
+        scan:
+        while (true) {
+            LambdaQueryWrapper<RoomArchive> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(RoomArchive::getRoomId, roomId)
+                    .gt(RoomArchive::getMaxRecordId, afterId)
+                    .orderByAsc(RoomArchive::getMinRecordId)
+                    .orderByAsc(RoomArchive::getId)
+                    .last("LIMIT " + offset + ", " + PAGE_INDEX_BATCH);
+            List<RoomArchive> archives = roomArchiveMapper.selectList(wrapper);
+            for (RoomArchive archive : archives) {
+                if (records.size() >= limit && archive.getMinRecordId() > records.lastKey()) {
+                    break scan;
+                }
+                RoundArchiveCodec.Partition partition = readArchiveFiles(List.of(archive.getFilePath()), record ->
+                        record.getRoomId().equals(roomId)
+                                && (record.getRoundNumber() > afterRound
+                                || (record.getRoundNumber() == afterRound && record.getId() > afterId)));
+                for (GameRecord record : partition.getRecords()) {
+                    records.putIfAbsent(record.getId(), record);
+                }
+                details.addAll(partition.getDetails());
+                while (records.size() > limit) {
+                    records.pollLastEntry();
+                }
+            }
+            if (archives.size() < PAGE_INDEX_BATCH) {
+                break;
+            }
+            offset += PAGE_INDEX_BATCH;
+        }
+
+        List<GameRecord> pageRecords = new ArrayList<>(records.values());
+        pageRecords.sort(Comparator.comparing(GameRecord::getRoundNumber).thenComparing(GameRecord::getId));
+        Map<Long, GameDetail> pageDetails = new LinkedHashMap<>();
+        for (GameDetail detail : details) {
+            if (records.containsKey(detail.getGameRecordId())) {
+                pageDetails.putIfAbsent(detail.getId(), detail);
+            }
+        }
+        return new RoundArchiveCodec.Partition(pageRecords, new ArrayList<>(pageDetails.values()));
+    }
+
+    /**
+     * 读取单个已归档对局（不存在时返回null）
+     */
+    public RoundArchiveCodec.Partition getArchivedRound(Long gameRecordId) {
+        LambdaQueryWrapper<RoomArchive> wrapper = new LambdaQueryWrapper<>();
+        wrapper.le(RoomArchive::getMinRecordId, gameRecordId)
+                .ge(RoomArchive::getMaxRecordId, gameRecordId);
+        List<RoomArchive> archives = roomArchiveMapper.selectList(wrapper);
+        if (archives.isEmpty()) {
+            return null;
+        }
+        RoundArchiveCodec.Partition partition = readArchives(archives, record -> record.getId().equals(gameRecordId));
+        return partition.getRecords().isEmpty() ? null : partition;
+    }
+
+    /**
+     * 逐个归档文件读取符合条件的已归档对局（用于导出），同一时间只持有一个文件的数据
+     * @param roomId 房间ID，为空时不限房间
+     * @param from 开始日期（含），为空时不限
+     * @param to 结束日期（含），为空时不限
+     */
+    public void forEachArchivedPartition(Long roomId, LocalDate from, LocalDate to,
+                                         java.util.function.Consumer<RoundArchiveCodec.Partition> consumer) {
+        LambdaQueryWrapper<RoomArchive> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(roomId != null, RoomArchive::getRoomId, roomId)
+                .ge(from != null, RoomArchive::getArchiveDate, from)
+                .le(to != null, RoomArchive::getArchiveDate, to)
+                .orderByAsc(RoomArchive::getArchiveDate)
+                .orderByAsc(RoomArchive::getId);
+        Set<String> files = roomArchiveMapper.selectList(wrapper).stream()
+                .map(RoomArchive::getFilePath)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Set<Long> seen = new HashSet<>();
+        for (String filePath : files) {
+            RoundArchiveCodec.Partition partition = readArchiveFiles(List.of(filePath), record ->
+                    (roomId == null || roomId.equals(record.getRoomId()))
+                            && (from == null || !record.getStartTime().toLocalDate().isBefore(from))
+                            && (to == null || !record.getStartTime().toLocalDate().isAfter(to))
+                            && seen.add(record.getId()));
+            if (!partition.getRecords().isEmpty()) {
+                consumer.accept(partition);
+            }
+        }
+    }
+
+    private RoundArchiveCodec.Partition readArchives(List<RoomArchive> archives, java.util.function.Predicate<GameRecord> filter) {
+        return readArchiveFiles(archives.stream().map(RoomArchive::getFilePath).collect(Collectors.toCollection(LinkedHashSet::new)), filter);
+    }
+
+    private RoundArchiveCodec.Partition readArchiveFiles(Collection<String> files, java.util.function.Predicate<GameRecord> filter) {
+        Map<Long, GameRecord> records = new LinkedHashMap<>();
+        Map<Long, GameDetail> details = new LinkedHashMap<>();
+        for (String filePath : files) {
+            try (InputStream in = Files.newInputStream(Paths.get(archiveDir).resolve(filePath))) {
+                RoundArchiveCodec.Partition partition = RoundArchiveCodec.read(in);
+                for (GameRecord record : partition.getRecords()) {
+                    if (filter.test(record)) {
+                        records.putIfAbsent(record.getId(), record);
+                    }
+                }
+                for (GameDetail detail : partition.getDetails()) {
+                    if (records.containsKey(detail.getGameRecordId())) {
+                        details.putIfAbsent(detail.getId(), detail);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("读取归档文件失败: {}", filePath, e);
+            }
+        }
+        return new RoundArchiveCodec.Partition(new ArrayList<>(records.values()), new ArrayList<>(details.values()));
+    }
+}
@@ -0,0 +1,141 @@
+package com.douniu.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已结算对局详情的响应缓存
+ *
+ * 对局结算后详情不再变化，缓存序列化好的响应字节和强ETag，
+ * 条件请求（If-None-Match）按弱比较命中时直接返回304，不查询数据库。
+ * 按字节数限制总内存，超出时淘汰最久未访问的对局。
+ */
+@Slf4j
+@Component
+public class SettledRoundCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SettledRoundCache(@Value("${douniu.round-cache.max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 缓存的响应：序列化后的字节和ETag
+     */
+    public record CachedResponse(byte[] body, String etag) {
+
+        /**
+         * If-None-Match 是否匹配（支持逗号分隔的多个ETag和*）
+         * 按弱比较（RFC 7232）忽略双方的 W/ 前缀：开启响应压缩时容器会把强ETag改写为弱ETag，客户端带回的是 W/"..."
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            String opaqueTag = stripWeak(etag);
+            for (String tag : ifNoneMatch.split(",")) {
+                String value = tag.trim();
+                if (value.equals("*") || stripWeak(value).equals(opaqueTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String stripWeak(String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+    }
+
+    public synchronized CachedResponse get(Long gameRecordId) {
+        CachedResponse cached = entries.get(gameRecordId);
+        if (cached == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    /**
+     * 缓存对局响应，超过内存上限时淘汰最久未访问的对局
+     * 单个响应超过上限时不缓存，只返回带ETag的结果
+     */
+    public synchronized CachedResponse put(Long gameRecordId, byte[] body) {
+        CachedResponse cached = new CachedResponse(body, etagOf(body));
+        if (body.length > maxBytes) {
+            return cached;
+        }
+        CachedResponse previous = entries.put(gameRecordId, cached);
+        if (previous != null) {
+            totalBytes -= previous.body().length;
+        }
+        totalBytes += body.length;
+
+        Iterator<Map.Entry<Long, CachedResponse>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Long, CachedResponse> eldest = iterator.next();
+            totalBytes -= eldest.getValue().body().length;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+        return cached;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * 定时输出缓存命中情况
+     */
+    @Scheduled(fixedDelayString = "${douniu.round-cache.stats-interval-ms:600000}")
+    public void logStats() {
+        long total = hits.get() + misses.get();
+        if (total == 0) {
+            return;
+        }
+        log.info("已结算对局缓存 - 对局数: {}, 占用字节: {}, 命中: {}, 未命中: {}, 淘汰: {}",
+                size(), getTotalBytes(), hits.get(), misses.get(), evictions.get());
+    }
+
+    /**
+     * 强ETag：响应字节的SHA-256摘要（取前128位）
+     */
+    static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder etag = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++) {
+                etag.append(String.format("%02x", digest[i]));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.douniu.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 容量有限、带过期时间的LRU缓存（线程安全）
+ *
+ * 超过容量时淘汰最久未访问的条目，读取时发现过期的条目按未命中处理并删除。
+ * 记录命中、未命中和淘汰次数，用于观察缓存效果。
+ */
+public class TtlLruCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtlLruCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::nanoTime);
+    }
+
+    TtlLruCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+        // accessOrder = true：按访问顺序排列，头部为最久未访问的条目
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlLruCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存，不存在或已过期时返回null
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (clock.getAsLong() - entry.createdAt >= ttlNanos) {
+            entries.remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, clock.getAsLong()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * 命中率（没有访问时为0）
+     */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.douniu.cache;
+
+import com.douniu.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户资料本地缓存
+ *
+ * 只缓存展示用的资料（ID、昵称、头像），不缓存密码和积分，因此积分变化不会读到旧值。
+ * 昵称、头像在注册后不可修改，缓存不需要失效，只按容量和过期时间淘汰；以后增加修改资料的接口时需要同时失效各实例的缓存。
+ */
+@Slf4j
+@Component
+public class UserProfileCache {
+
+    private final TtlLruCache<Long, User> cache;
+
+    public UserProfileCache(@Value("${douniu.user-cache.max-size:10000}") int maxSize,
+                            @Value("${douniu.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = new TtlLruCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    public User get(Long userId) {
+        return cache.get(userId);
+    }
+
+    /**
+     * 写入缓存（只保留展示字段）
+     */
+    public void put(User user) {
+        User profile = new User();
+        profile.setId(user.getId());
+        profile.setNickname(user.getNickname());
+        profile.setAvatar(user.getAvatar());
+        cache.put(user.getId(), profile);
+    }
+
+    /**
+     * 定时输出缓存命中情况
+     */
+    @Scheduled(fixedDelayString = "${douniu.user-cache.stats-interval-ms:600000}")
+    public void logStats() {
+        if (cache.getHits() + cache.getMisses() == 0) {
+            return;
+        }
+        log.info("用户资料缓存 - 条目数: {}, 命中: {}, 未命中: {}, 淘汰: {}, 命中率: {}",
+                cache.size(), cache.getHits(), cache.getMisses(), cache.getEvictions(),
+                String.format("%.2f%%", cache.getHitRate() * 100));
+    }
+}
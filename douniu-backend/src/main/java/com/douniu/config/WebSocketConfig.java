@@ -1,15 +1,34 @@
 package com.douniu.config;
 
+import com.douniu.websocket.MessageCompressor;
+import com.douniu.websocket.MessageFormatNegotiator;
+import com.douniu.websocket.RoomReplayBuffer;
+import com.douniu.websocket.RoomSubscriptionRegistry;
+import com.douniu.websocket.SlowConsumerGuard;
+import com.douniu.websocket.StompAuthenticator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAuthenticator stompAuthenticator;
+    private final MessageFormatNegotiator messageFormatNegotiator;
+    private final MessageCompressor messageCompressor;
+    private final RoomReplayBuffer roomReplayBuffer;
+    private final SlowConsumerGuard slowConsumerGuard;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // 启用简单的消息代理，用于向客户端发送消息
@@ -18,6 +37,26 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setApplicationDestinationPrefixes("/app");
         // 设置用户目标前缀（用于点对点消息）
         config.setUserDestinationPrefix("/user");
+        // 保证同一会话收到的消息与发送顺序一致（房间增量依赖版本号顺序）
+        config.setPreservePublishOrder(true);
+        // 房间消息进入代理前编号并记入补发缓冲（断线续传）
+        config.configureBrokerChannel().interceptors(roomReplayBuffer.getBrokerInterceptor());
+    }
+
+    /**
+     * 简单代理改用按目标地址索引的订阅表，广播开销只与房间内订阅者数量有关
+     */
+    @Bean
+    public static BeanPostProcessor roomSubscriptionRegistryPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler handler) {
+                    handler.setSubscriptionRegistry(new RoomSubscriptionRegistry());
+                }
+                return bean;
+            }
+        };
     }
 
     @Override
@@ -26,9 +65,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // SockJS会自动处理info请求（没有Upgrade头），这是正常的
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .addInterceptors(messageCompressor.getHandshakeInterceptor()) // 记录SockJS传输方式，用于按传输方式启用压缩
                 .withSockJS()
                 .setHeartbeatTime(25000) // 心跳间隔25秒
                 .setDisconnectDelay(5000); // 断开延迟5秒
     }
-}
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // 单个会话发送缓冲和单次发送时长的上限，超过时关闭会话；同一会话只有一个线程在写，慢客户端不占用其他会话的下行线程
+        registration.setSendTimeLimit(slowConsumerGuard.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(slowConsumerGuard.getSendBufferSizeLimit())
+                .addDecoratorFactory(slowConsumerGuard.getDecoratorFactory());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // 连接时校验token并绑定用户，再记录每个连接协商的消息编码和压缩
+        registration.interceptors(stompAuthenticator.getInboundInterceptor(),
+                messageFormatNegotiator.getInboundInterceptor(),
+                messageCompressor.getInboundInterceptor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // 先按会话积压丢弃非关键消息或关闭慢客户端，再按连接协商的编码转换下行消息，最后按阈值压缩
+        registration.interceptors(slowConsumerGuard.getOutboundInterceptor(),
+                messageFormatNegotiator.getOutboundInterceptor(),
+                messageCompressor.getOutboundInterceptor());
+    }
+}
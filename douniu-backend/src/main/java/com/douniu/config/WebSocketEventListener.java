@@ -1,11 +1,11 @@
 package com.douniu.config;
 
-import com.douniu.entity.Room;
-import com.douniu.entity.RoomPlayer;
-import com.douniu.service.RoomService;
+import com.douniu.websocket.RoomStateBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
@@ -13,8 +13,6 @@ import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import com.douniu.dto.ApiResponse;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -28,7 +26,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class WebSocketEventListener {
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final RoomService roomService;
+    private final RoomStateBroadcaster roomStateBroadcaster;
     
     // 存储用户ID和房间ID的映射（key: userId, value: roomId）
     private final Map<Long, Long> userRoomMap = new ConcurrentHashMap<>();
@@ -72,8 +70,8 @@ public class WebSocketEventListener {
                 Long roomId = userRoomMap.remove(userId);
                 if (roomId != null) {
                     log.info("用户 {} 会话已断开，标记为离线，房间ID: {}", userId, roomId);
-                    // 广播房间更新，通知其他玩家该玩家已离线
-                    broadcastRoomUpdate(roomId);
+                    // 广播离线增量，通知其他玩家该玩家已离线
+                    roomStateBroadcaster.playerOnline(roomId, userId, false);
                 }
             } else {
                 log.debug("用户 {} 的旧会话 {} 已断开，当前活跃会话: {}", userId, sessionId, currentSessionId);
@@ -99,7 +97,7 @@ public class WebSocketEventListener {
             if (oldSessionId != null && !oldSessionId.equals(sessionId)) {
                 log.info("用户 {} 已有会话 {}，断开旧会话，新会话: {}", userId, oldSessionId, sessionId);
                 // 断开旧会话
-                disconnectSession(oldSessionId);
+                disconnectSession(userId, oldSessionId);
                 // 清理旧会话的映射
                 sessionUserMap.remove(oldSessionId);
             }
@@ -111,20 +109,21 @@ public class WebSocketEventListener {
         }
         
         userRoomMap.put(userId, roomId);
-        broadcastRoomUpdate(roomId);
+        roomStateBroadcaster.playerOnline(roomId, userId, true);
     }
     
     /**
      * 断开指定会话
-     * 通过发送断开消息通知客户端，客户端收到后应主动断开连接
+     * 发送到用户目标 /user/queue/disconnect，消息头带上旧会话ID，只投递给旧会话（新会话同一用户，不会收到）；
+     * 客户端收到后主动断开连接并停止重连
      */
-    private void disconnectSession(String sessionId) {
+    private void disconnectSession(Long userId, String sessionId) {
         try {
-            // 发送断开消息通知客户端
-            // 注意：这里使用 /user/{sessionId} 可能不工作，因为 Spring 的 user 目标需要用户名
-            // 我们改为使用一个特殊的主题，客户端应该订阅这个主题
-            messagingTemplate.convertAndSend("/queue/disconnect/" + sessionId, 
-                ApiResponse.error("您的账号在其他地方登录，当前连接已断开"));
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setLeaveMutable(true);
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/disconnect",
+                    ApiResponse.error("您的账号在其他地方登录，当前连接已断开"), headers.getMessageHeaders());
             log.info("已发送断开消息到旧会话: sessionId={}", sessionId);
         } catch (Exception e) {
             log.warn("发送断开消息失败: sessionId={}", sessionId, e);
@@ -132,20 +131,10 @@ public class WebSocketEventListener {
     }
     
     /**
-     * 记录用户离开房间（由WebSocketMessageHandler调用）
+     * 记录用户离开房间（由WebSocketMessageHandler调用，离开增量由调用方广播）
      */
     public void recordUserLeaveRoom(Long userId) {
-        Long roomId = userRoomMap.remove(userId);
-        if (roomId != null) {
-            broadcastRoomUpdate(roomId);
-        }
-    }
-    
-    /**
-     * 根据sessionId获取userId
-     */
-    public Long getUserIdBySessionId(String sessionId) {
-        return sessionUserMap.get(sessionId);
+        userRoomMap.remove(userId);
     }
     
     /**
@@ -173,21 +162,4 @@ public class WebSocketEventListener {
         }
         return false;
     }
-    
-    /**
-     * 广播房间更新
-     */
-    private void broadcastRoomUpdate(Long roomId) {
-        Room room = roomService.getRoom(roomId);
-        // 获取玩家列表，并填充在线状态
-        List<RoomPlayer> players = roomService.getRoomPlayers(roomId, this::isUserOnline);
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("room", room);
-        data.put("players", players);
-
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/update",
-                ApiResponse.success(data));
-    }
 }
-
@@ -1,21 +1,41 @@
 package com.douniu.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.douniu.archive.RoundArchiveCodec;
+import com.douniu.archive.RoundArchiveService;
+import com.douniu.cache.SettledRoundCache;
 import com.douniu.dto.ApiResponse;
+import com.douniu.dto.CursorPage;
 import com.douniu.entity.GameDetail;
 import com.douniu.entity.GameRecord;
 import com.douniu.entity.Room;
+import com.douniu.enums.CardType;
+import com.douniu.enums.ExportFormat;
+import com.douniu.enums.RoundStatus;
 import com.douniu.mapper.GameDetailMapper;
 import com.douniu.mapper.GameRecordMapper;
 import com.douniu.mapper.RoomMapper;
-import com.douniu.mapper.RoomPlayerMapper;
+import com.douniu.service.RoundExportService;
 import com.douniu.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,8 +46,18 @@ public class GameRecordController {
     private final GameRecordMapper gameRecordMapper;
     private final GameDetailMapper gameDetailMapper;
     private final RoomMapper roomMapper;
-    private final RoomPlayerMapper roomPlayerMapper;
     private final UserService userService;
+    private final RoundArchiveService roundArchiveService;
+    private final SettledRoundCache settledRoundCache;
+    private final ObjectMapper objectMapper;
+    private final RoundExportService roundExportService;
+
+    // 运营账号ID（可以不限房间导出对局历史）
+    @Value("${douniu.export.operator-ids:}")
+    private Set<Long> exportOperatorIds;
+
+    // 对局记录每页最大条数
+    private static final int MAX_PAGE_SIZE = 100;
 
     /**
      * 获取用户参与的房间列表
@@ -37,66 +67,8 @@ public class GameRecordController {
         try {
             Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
             
-            // 查询用户参与的房间（通过room_player表）
-            LambdaQueryWrapper<com.douniu.entity.RoomPlayer> playerWrapper = new LambdaQueryWrapper<>();
-            playerWrapper.eq(com.douniu.entity.RoomPlayer::getUserId, userId)
-                    .select(com.douniu.entity.RoomPlayer::getRoomId)
-                    .groupBy(com.douniu.entity.RoomPlayer::getRoomId);
-            List<com.douniu.entity.RoomPlayer> players = roomPlayerMapper.selectList(playerWrapper);
-            
-            if (players.isEmpty()) {
-                return ApiResponse.success(List.of());
-            }
-            
-            List<Long> roomIds = players.stream()
-                    .map(com.douniu.entity.RoomPlayer::getRoomId)
-                    .distinct()
-                    .collect(Collectors.toList());
-            
-            LambdaQueryWrapper<Room> wrapper = new LambdaQueryWrapper<>();
-            wrapper.in(Room::getId, roomIds)
-                    .orderByDesc(Room::getCreatedAt);
-            List<Room> rooms = roomMapper.selectList(wrapper);
-            
-            // 填充创建者信息、参与人数和总盈利
-            for (Room room : rooms) {
-                // 填充创建者昵称
-                if (room.getCreatorId() != null) {
-                    com.douniu.entity.User creator = userService.getUserById(room.getCreatorId());
-                    if (creator != null) {
-                        room.setCreatorNickname(creator.getNickname());
-                    }
-                }
-                
-                // 填充当前玩家数量
-                LambdaQueryWrapper<com.douniu.entity.RoomPlayer> playerCountWrapper = new LambdaQueryWrapper<>();
-                playerCountWrapper.eq(com.douniu.entity.RoomPlayer::getRoomId, room.getId());
-                long count = roomPlayerMapper.selectCount(playerCountWrapper);
-                room.setPlayerCount((int) count);
-                
-                // 计算用户在该房间的总盈利（统计该用户在该房间所有已结算对局的积分变化总和）
-                LambdaQueryWrapper<GameRecord> recordWrapper = new LambdaQueryWrapper<>();
-                recordWrapper.eq(GameRecord::getRoomId, room.getId())
-                        .eq(GameRecord::getStatus, 1); // 只统计已结算的对局（status=1表示已结算）
-                List<GameRecord> roomRecords = gameRecordMapper.selectList(recordWrapper);
-                
-                int totalProfit = 0;
-                for (GameRecord record : roomRecords) {
-                    // 查询用户在该对局中的详情
-                    LambdaQueryWrapper<GameDetail> detailWrapper = new LambdaQueryWrapper<>();
-                    detailWrapper.eq(GameDetail::getGameRecordId, record.getId())
-                            .eq(GameDetail::getUserId, userId);
-                    // 使用 selectList 然后取第一条，避免 TooManyResultsException
-                    List<GameDetail> userDetails = gameDetailMapper.selectList(detailWrapper);
-                    if (!userDetails.isEmpty()) {
-                        GameDetail userDetail = userDetails.get(0);
-                        if (userDetail.getScoreChange() != null) {
-                            totalProfit += userDetail.getScoreChange();
-                        }
-                    }
-                }
-                room.setTotalProfit(totalProfit);
-            }
+            // 一次查询返回房间、创建者昵称、参与人数和战绩汇总中的总盈利
+            List<Room> rooms = roomMapper.selectUserRooms(userId);
             
             return ApiResponse.success(rooms);
         } catch (Exception e) {
@@ -107,50 +79,51 @@ public class GameRecordController {
 
     /**
      * 获取房间的对局记录列表（包含用户在该对局中的收支和牌型）
+     * 按局数升序游标分页，nextCursor 为空表示没有更多记录
      */
     @GetMapping("/room/{roomId}")
-    public ApiResponse<List<Map<String, Object>>> getRoomRecords(@PathVariable Long roomId) {
+    public ApiResponse<CursorPage<Map<String, Object>>> getRoomRecords(@PathVariable Long roomId,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam(defaultValue = "20") Integer limit) {
         try {
             Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            long[] position = decodeCursor(cursor);
+            int afterRound = (int) position[0];
+            long afterId = position[1];
             
-            LambdaQueryWrapper<GameRecord> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(GameRecord::getRoomId, roomId)
-                    .orderByAsc(GameRecord::getRoundNumber); // 按局数升序
-            List<GameRecord> records = gameRecordMapper.selectList(wrapper);
-            
-            // 为每个对局记录添加用户的收支和牌型信息
+            // 一次关联查询取出本页对局和用户详情，多取一条用于判断是否还有下一页
             List<Map<String, Object>> result = new java.util.ArrayList<>();
-            for (GameRecord record : records) {
-                Map<String, Object> recordData = new HashMap<>();
-                recordData.put("id", record.getId());
-                recordData.put("roomId", record.getRoomId());
-                recordData.put("roundNumber", record.getRoundNumber());
-                recordData.put("startTime", record.getStartTime());
-                recordData.put("endTime", record.getEndTime());
-                recordData.put("status", record.getStatus());
-                
-                // 查询用户在该对局中的详情
-                LambdaQueryWrapper<GameDetail> detailWrapper = new LambdaQueryWrapper<>();
-                detailWrapper.eq(GameDetail::getGameRecordId, record.getId())
-                        .eq(GameDetail::getUserId, userId);
-                // 使用 selectList 然后取第一条，避免 TooManyResultsException
-                List<GameDetail> userDetails = gameDetailMapper.selectList(detailWrapper);
-                
-                if (!userDetails.isEmpty()) {
-                    GameDetail userDetail = userDetails.get(0);
-                    recordData.put("scoreChange", userDetail.getScoreChange());
-                    recordData.put("cardType", userDetail.getCardType());
-                    recordData.put("betAmount", userDetail.getBetAmount());
-                } else {
-                    recordData.put("scoreChange", 0);
-                    recordData.put("cardType", null);
-                    recordData.put("betAmount", 0);
+            for (Map<String, Object> row : gameRecordMapper.selectRoomRecordPage(roomId, userId, afterRound, afterId, pageSize + 1)) {
+                Object cardTypeCode = row.get("cardType");
+                CardType cardType = cardTypeCode != null ? CardType.fromCode(((Number) cardTypeCode).intValue()) : null;
+                row.put("cardType", cardType != null ? cardType.getName() : null);
+                row.putIfAbsent("scoreChange", 0);
+                row.putIfAbsent("betAmount", 0);
+                result.add(row);
+            }
+            
+            // 已归档的对局只读取游标之后的一页，与热表结果按同一游标合并
+            RoundArchiveCodec.Partition archive = roundArchiveService.getRoomArchivePage(roomId, afterRound, afterId, pageSize + 1);
+            if (!archive.getRecords().isEmpty()) {
+                Map<Long, GameDetail> archivedUserDetails = archive.getDetails().stream()
+                        .filter(d -> userId.equals(d.getUserId()))
+                        .collect(Collectors.toMap(GameDetail::getGameRecordId, d -> d, (a, b) -> a));
+                for (GameRecord record : archive.getRecords()) {
+                    result.add(toRecordData(record, archivedUserDetails.get(record.getId())));
                 }
-                
-                result.add(recordData);
+                result.sort(java.util.Comparator.<Map<String, Object>, Integer>comparing(r -> ((Number) r.get("roundNumber")).intValue())
+                        .thenComparing(r -> ((Number) r.get("id")).longValue()));
+            }
+            
+            String nextCursor = null;
+            if (result.size() > pageSize) {
+                result = new java.util.ArrayList<>(result.subList(0, pageSize));
+                Map<String, Object> last = result.get(pageSize - 1);
+                nextCursor = encodeCursor(((Number) last.get("roundNumber")).intValue(), ((Number) last.get("id")).longValue());
             }
             
-            return ApiResponse.success(result);
+            return ApiResponse.success(new CursorPage<>(result, nextCursor));
         } catch (Exception e) {
             return ApiResponse.error(e.getMessage());
         }
@@ -158,9 +131,15 @@ public class GameRecordController {
 
     /**
      * 获取对局详情（包含用户昵称和庄家信息）
+     * 已结算的对局缓存序列化后的响应和ETag，If-None-Match 匹配时返回304
      */
     @GetMapping("/{gameRecordId}/details")
-    public ApiResponse<List<GameDetail>> getGameDetails(@PathVariable Long gameRecordId) {
+    public ResponseEntity<?> getGameDetails(@PathVariable Long gameRecordId,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        SettledRoundCache.CachedResponse cached = settledRoundCache.get(gameRecordId);
+        if (cached != null) {
+            return toCachedResponse(cached, ifNoneMatch);
+        }
         try {
             LambdaQueryWrapper<GameDetail> wrapper = new LambdaQueryWrapper<>();
             wrapper.eq(GameDetail::getGameRecordId, gameRecordId)
@@ -169,25 +148,138 @@ public class GameRecordController {
             
             // 获取对局记录以获取庄家ID
             GameRecord record = gameRecordMapper.selectById(gameRecordId);
+            
+            // 热表中不存在时从归档文件读取
+            if (record == null && details.isEmpty()) {
+                RoundArchiveCodec.Partition archive = roundArchiveService.getArchivedRound(gameRecordId);
+                if (archive != null) {
+                    record = archive.getRecords().get(0);
+                    details = new java.util.ArrayList<>(archive.getDetails());
+                    details.sort(java.util.Comparator.comparing(GameDetail::getSeatNumber));
+                }
+            }
             Long dealerId = record != null ? record.getDealerId() : null;
             
-            // 填充用户昵称和庄家信息
+            // 填充用户昵称和庄家信息（昵称一次批量查询）
+            Map<Long, com.douniu.entity.User> users = userService.getUsersByIds(
+                    details.stream().map(GameDetail::getUserId).collect(Collectors.toList()));
             for (GameDetail detail : details) {
                 // 填充用户昵称
-                if (detail.getUserId() != null) {
-                    com.douniu.entity.User user = userService.getUserById(detail.getUserId());
-                    if (user != null) {
-                        detail.setNickname(user.getNickname());
-                    }
+                com.douniu.entity.User user = users.get(detail.getUserId());
+                if (user != null) {
+                    detail.setNickname(user.getNickname());
                 }
                 
                 // 判断是否是庄家
                 detail.setIsDealer(dealerId != null && dealerId.equals(detail.getUserId()));
             }
             
-            return ApiResponse.success(details);
+            ApiResponse<List<GameDetail>> response = ApiResponse.success(details);
+            if (record != null && record.getStatus() == RoundStatus.SETTLED.getCode()) {
+                // 已结算的对局不再变化，缓存序列化结果
+                return toCachedResponse(settledRoundCache.put(gameRecordId, objectMapper.writeValueAsBytes(response)), ifNoneMatch);
+            }
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
-            return ApiResponse.error(e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * 返回缓存的响应：ETag 匹配时返回304，否则返回缓存的字节
+     */
+    private ResponseEntity<?> toCachedResponse(SettledRoundCache.CachedResponse cached, String ifNoneMatch) {
+        if (cached.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(cached.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(cached.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cached.body());
+    }
+
+    /**
+     * 导出对局历史（NDJSON 或 CSV，流式输出）
+     * 按房间导出需要是房间管理员，不指定房间按日期范围导出需要是运营账号
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportRecords(@RequestParam(required = false) Long roomId,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                           @RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
+            ExportFormat exportFormat = ExportFormat.fromExtension(format);
+            if (exportFormat == null) {
+                throw new RuntimeException("不支持的导出格式");
+            }
+            if (!exportOperatorIds.contains(userId)) {
+                Room room = roomId != null ? roomMapper.selectById(roomId) : null;
+                if (room == null || !userId.equals(room.getAdminId())) {
+                    throw new RuntimeException("无权限");
+                }
+            }
+            
+            StreamingResponseBody body = output -> roundExportService.export(roomId, from, to, exportFormat, output);
+            String fileName = "rounds" + (roomId != null ? "-room" + roomId : "")
+                    + (from != null ? "-" + from : "") + (to != null ? "-" + to : "") + "." + exportFormat.getExtension();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .body(body);
+        } catch (Exception e) {
+            return ResponseEntity.ok(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * 组装对局记录（包含用户在该对局中的收支和牌型）
+     */
+    private Map<String, Object> toRecordData(GameRecord record, GameDetail userDetail) {
+        Map<String, Object> recordData = new HashMap<>();
+        recordData.put("id", record.getId());
+        recordData.put("roomId", record.getRoomId());
+        recordData.put("roundNumber", record.getRoundNumber());
+        recordData.put("startTime", record.getStartTime());
+        recordData.put("endTime", record.getEndTime());
+        recordData.put("status", record.getStatus());
+        
+        if (userDetail != null) {
+            recordData.put("scoreChange", userDetail.getScoreChange());
+            recordData.put("cardType", userDetail.getCardType());
+            recordData.put("betAmount", userDetail.getBetAmount());
+        } else {
+            recordData.put("scoreChange", 0);
+            recordData.put("cardType", null);
+            recordData.put("betAmount", 0);
+        }
+        return recordData;
+    }
+
+    /**
+     * 游标编码：Base64("局数:对局ID")
+     */
+    private static String encodeCursor(int roundNumber, long gameRecordId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((roundNumber + ":" + gameRecordId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 游标解码，返回 [局数, 对局ID]，游标为空时从头开始
+     */
+    private static long[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            return new long[]{Integer.parseInt(parts[0]), Long.parseLong(parts[1])};
+        } catch (Exception e) {
+            throw new RuntimeException("无效的分页游标");
         }
     }
 
@@ -0,0 +1,52 @@
+package com.douniu.controller;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.enums.LeaderboardType;
+import com.douniu.service.LeaderboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/leaderboard")
+@RequiredArgsConstructor
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    /**
+     * 排行榜前N名（type：balance-总积分榜，daily-今日盈利榜，weekly-本周盈利榜）
+     */
+    @GetMapping("/{type}")
+    public ApiResponse<List<Map<String, Object>>> getTop(@PathVariable String type,
+                                                         @RequestParam(defaultValue = "20") Integer limit) {
+        try {
+            LeaderboardType leaderboardType = LeaderboardType.fromCode(type);
+            if (leaderboardType == null) {
+                return ApiResponse.error("排行榜不存在");
+            }
+            return ApiResponse.success(leaderboardService.getTop(leaderboardType, Math.max(1, Math.min(limit, 100))));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 当前用户在排行榜中的排名
+     */
+    @GetMapping("/{type}/me")
+    public ApiResponse<Map<String, Object>> getMyRank(@PathVariable String type) {
+        try {
+            Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
+            LeaderboardType leaderboardType = LeaderboardType.fromCode(type);
+            if (leaderboardType == null) {
+                return ApiResponse.error("排行榜不存在");
+            }
+            return ApiResponse.success(leaderboardService.getRank(leaderboardType, userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+}
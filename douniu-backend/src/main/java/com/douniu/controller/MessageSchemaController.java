@@ -0,0 +1,29 @@
+package com.douniu.controller;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.websocket.CompactMessageCodec;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+public class MessageSchemaController {
+
+    /**
+     * WebSocket紧凑消息编码的字段字典（客户端按序号还原字段名）
+     */
+    @GetMapping("/message-schema")
+    public ApiResponse<Map<String, Object>> getMessageSchema() {
+        try {
+            Map<String, Object> schema = new HashMap<>();
+            schema.put("format", CompactMessageCodec.FORMAT);
+            schema.put("keys", CompactMessageCodec.KEYS);
+            schema.put("cardKeys", CompactMessageCodec.CARD_KEYS);
+            return ApiResponse.success(schema);
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.douniu.controller;
 
+import com.douniu.config.WebSocketEventListener;
 import com.douniu.dto.ApiResponse;
 import com.douniu.dto.CreateRoomRequest;
 import com.douniu.entity.Room;
 import com.douniu.entity.RoomPlayer;
 import com.douniu.service.RoomService;
+import com.douniu.websocket.GameStateTracker;
+import com.douniu.websocket.RoomStateBroadcaster;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/room")
@@ -16,6 +20,9 @@ import java.util.List;
 public class RoomController {
 
     private final RoomService roomService;
+    private final RoomStateBroadcaster roomStateBroadcaster;
+    private final WebSocketEventListener webSocketEventListener;
+    private final GameStateTracker gameStateTracker;
 
     /**
      * 创建房间
@@ -60,6 +67,31 @@ public class RoomController {
         }
     }
 
+    /**
+     * 获取房间完整状态快照（带版本号，客户端增量版本不连续时拉取）
+     */
+    @GetMapping("/{roomId}/state")
+    public ApiResponse<Map<String, Object>> getRoomState(@PathVariable Long roomId) {
+        try {
+            return ApiResponse.success(roomStateBroadcaster.getSnapshot(roomId, webSocketEventListener::isUserOnline));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前一局的对局快照（阶段、庄家、投注、已开牌、剩余倒计时和自己的手牌），刷新页面或中途加入时拉取
+     */
+    @GetMapping("/{roomId}/game-state")
+    public ApiResponse<Map<String, Object>> getGameState(@PathVariable Long roomId) {
+        try {
+            Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
+            return ApiResponse.success(gameStateTracker.getSnapshot(roomId, userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     /**
      * 查询所有可加入的房间（未开始或进行中）
      */
@@ -0,0 +1,40 @@
+package com.douniu.controller;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.dto.UserStats;
+import com.douniu.service.UserStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final UserStatsService userStatsService;
+
+    /**
+     * 获取当前用户的统计（局数、胜率、牌型分布、坐庄/闲家盈利）
+     */
+    @GetMapping("/me")
+    public ApiResponse<UserStats> getMyStats() {
+        try {
+            Long userId = cn.dev33.satoken.stp.StpUtil.getLoginIdAsLong();
+            return ApiResponse.success(userStatsService.getStats(userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 获取指定用户的统计
+     */
+    @GetMapping("/user/{userId}")
+    public ApiResponse<UserStats> getUserStats(@PathVariable Long userId) {
+        try {
+            return ApiResponse.success(userStatsService.getStats(userId));
+        } catch (Exception e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.douniu.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // 下一页游标，没有更多数据时为null
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,83 @@
+package com.douniu.dto;
+
+import com.douniu.entity.GameDetail;
+import com.douniu.enums.CardType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户统计（由 Redis 哈希中的计数器组装）
+ *
+ * 计数字段：rounds-局数，wins-获胜局数，dealerRounds-坐庄局数，dealerProfit-坐庄盈利，
+ * playerProfit-闲家盈利，cardType:{牌型编码}-各牌型出现次数
+ */
+@Data
+public class UserStats {
+
+    public static final String ROUNDS = "rounds";
+    public static final String WINS = "wins";
+    public static final String DEALER_ROUNDS = "dealerRounds";
+    public static final String DEALER_PROFIT = "dealerProfit";
+    public static final String PLAYER_PROFIT = "playerProfit";
+    public static final String CARD_TYPE_PREFIX = "cardType:";
+
+    private Long userId;
+    private long rounds;
+    private long wins;
+    private double winRate; // 胜率（0~1）
+    private long dealerRounds;
+    private long dealerProfit;
+    private long playerRounds;
+    private long playerProfit;
+    private long totalProfit;
+    private List<Map<String, Object>> cardTypes; // 牌型分布：[{cardType, count}]，按牌型从大到小
+
+    /**
+     * 一条对局详情对应的计数器增量
+     */
+    public static Map<String, Long> increments(GameDetail detail, boolean dealer) {
+        Map<String, Long> increments = new HashMap<>();
+        long scoreChange = detail.getScoreChange() != null ? detail.getScoreChange() : 0;
+        increments.put(ROUNDS, 1L);
+        increments.put(WINS, detail.getIsWinner() != null && detail.getIsWinner() == 1 ? 1L : 0L);
+        increments.put(DEALER_ROUNDS, dealer ? 1L : 0L);
+        increments.put(dealer ? DEALER_PROFIT : PLAYER_PROFIT, scoreChange);
+        if (detail.getCardTypeCode() != null) {
+            increments.put(CARD_TYPE_PREFIX + detail.getCardTypeCode(), 1L);
+        }
+        return increments;
+    }
+
+    /**
+     * 由计数器组装统计结果
+     */
+    public static UserStats fromCounters(Long userId, Map<String, Long> counters) {
+        UserStats stats = new UserStats();
+        stats.setUserId(userId);
+        stats.setRounds(counters.getOrDefault(ROUNDS, 0L));
+        stats.setWins(counters.getOrDefault(WINS, 0L));
+        stats.setWinRate(stats.getRounds() == 0 ? 0 : (double) stats.getWins() / stats.getRounds());
+        stats.setDealerRounds(counters.getOrDefault(DEALER_ROUNDS, 0L));
+        stats.setDealerProfit(counters.getOrDefault(DEALER_PROFIT, 0L));
+        stats.setPlayerRounds(stats.getRounds() - stats.getDealerRounds());
+        stats.setPlayerProfit(counters.getOrDefault(PLAYER_PROFIT, 0L));
+        stats.setTotalProfit(stats.getDealerProfit() + stats.getPlayerProfit());
+
+        List<Map<String, Object>> cardTypes = new ArrayList<>();
+        for (CardType type : CardType.values()) {
+            long count = counters.getOrDefault(CARD_TYPE_PREFIX + type.getCode(), 0L);
+            if (count > 0) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("cardType", type.getName());
+                item.put("count", count);
+                cardTypes.add(item);
+            }
+        }
+        stats.setCardTypes(cardTypes);
+        return stats;
+    }
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.douniu.enums.CardType;
 import lombok.Data;
 
 /**
@@ -20,8 +21,9 @@ public class GameDetail {
     private Integer seatNumber;
     private Integer betAmount; // 投注额
     private String cards; // 牌面JSON
-    private String cardType; // 牌型
-    private Integer multiplier; // 赔率
+    @TableField("card_type")
+    private Integer cardTypeCode; // 牌型编码（CardType.code）
+    private Integer strength; // 牌力值（牌型编码 × 64 + 最大单牌值）
     private Integer scoreChange; // 积分变化
     private Integer isWinner; // 0-否，1-是
     
@@ -30,5 +32,21 @@ public class GameDetail {
     
     @TableField(exist = false) // 非数据库字段
     private Boolean isDealer; // 是否是庄家（用于显示）
+
+    /**
+     * 牌型名称（由牌型编码解析，不落库）
+     */
+    public String getCardType() {
+        CardType type = cardTypeCode != null ? CardType.fromCode(cardTypeCode) : null;
+        return type != null ? type.getName() : null;
+    }
+
+    /**
+     * 赔率（由牌型编码解析，不落库）
+     */
+    public Integer getMultiplier() {
+        CardType type = cardTypeCode != null ? CardType.fromCode(cardTypeCode) : null;
+        return type != null ? type.getMultiplier() : null;
+    }
 }
 
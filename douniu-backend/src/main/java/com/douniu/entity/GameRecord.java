@@ -3,6 +3,7 @@ package com.douniu.entity;
 import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -19,7 +20,9 @@ public class GameRecord {
     private Long roomId;
     private Integer roundNumber;
     private Long dealerId;
-    private Integer status; // 0-进行中，1-已结算
+    private Integer status; // 0-进行中，1-已结算，2-结算中，3-已取消
+    @Version
+    private Integer version; // 乐观锁版本号
     private LocalDateTime startTime;
     private LocalDateTime endTime;
 }
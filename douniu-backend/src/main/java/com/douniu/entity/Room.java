@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -24,6 +25,8 @@ public class Room {
     private Integer currentRound;
     private String enabledCardTypes; // JSON数组，启用的牌型
     private Integer status; // 0-等待中，1-游戏中，2-已结束
+    @Version
+    private Integer version; // 乐观锁版本号
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
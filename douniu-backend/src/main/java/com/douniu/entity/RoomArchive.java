@@ -0,0 +1,27 @@
+package com.douniu.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 房间归档索引实体（记录房间的对局被归档到了哪些归档文件）
+ */
+@Data
+@TableName("room_archive")
+public class RoomArchive {
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long roomId;
+    private LocalDate archiveDate; // 分区日期（对局开始日期）
+    private String filePath; // 归档文件路径（相对归档目录）
+    private Long minRecordId; // 文件中该房间的最小对局ID
+    private Long maxRecordId; // 文件中该房间的最大对局ID
+    private Integer roundCount; // 文件中该房间的对局数
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package com.douniu.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户房间战绩汇总实体（结算时增量更新）
+ */
+@Data
+@TableName("user_room_summary")
+public class UserRoomSummary {
+    private Long userId;
+    private Long roomId;
+    private Integer roundsPlayed; // 已结算局数
+    private Integer totalProfit; // 总盈利
+    private Integer wins; // 获胜局数
+    private Integer bestCardType; // 最大牌型编码（CardType.code）
+    private Integer bestStrength; // 最大牌力值
+    private LocalDateTime updatedAt;
+}
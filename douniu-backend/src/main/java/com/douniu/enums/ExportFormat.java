@@ -0,0 +1,29 @@
+package com.douniu.enums;
+
+import lombok.Getter;
+
+/**
+ * 对局导出格式枚举
+ */
+@Getter
+public enum ExportFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    CSV("csv", "text/csv");
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public static ExportFormat fromExtension(String extension) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
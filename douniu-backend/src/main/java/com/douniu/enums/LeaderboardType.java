@@ -0,0 +1,69 @@
+package com.douniu.enums;
+
+import lombok.Getter;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+
+/**
+ * 排行榜类型枚举
+ */
+@Getter
+public enum LeaderboardType {
+    BALANCE("balance", "总积分榜", null),
+    DAILY("daily", "今日盈利榜", Duration.ofDays(3)),
+    WEEKLY("weekly", "本周盈利榜", Duration.ofDays(15));
+
+    private static final String KEY_PREFIX = "douniu:leaderboard:";
+
+    private final String code;
+    private final String name;
+    private final Duration retention; // 周期榜单的保留时间，总榜为null
+
+    LeaderboardType(String code, String name, Duration retention) {
+        this.code = code;
+        this.name = name;
+        this.retention = retention;
+    }
+
+    /**
+     * 指定日期所在周期的 Redis 键
+     * 日榜：douniu:leaderboard:daily:2026-10-19，周榜（ISO周）：douniu:leaderboard:weekly:2026-W43
+     */
+    public String key(LocalDate date) {
+        switch (this) {
+            case DAILY:
+                return KEY_PREFIX + code + ":" + date;
+            case WEEKLY:
+                return KEY_PREFIX + code + ":" + date.get(IsoFields.WEEK_BASED_YEAR)
+                        + "-W" + String.format("%02d", date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            default:
+                return KEY_PREFIX + code;
+        }
+    }
+
+    /**
+     * 指定日期所在周期的第一天（总榜为null）
+     */
+    public LocalDate periodStart(LocalDate date) {
+        switch (this) {
+            case DAILY:
+                return date;
+            case WEEKLY:
+                return date.with(DayOfWeek.MONDAY);
+            default:
+                return null;
+        }
+    }
+
+    public static LeaderboardType fromCode(String code) {
+        for (LeaderboardType type : values()) {
+            if (type.code.equalsIgnoreCase(code)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.douniu.enums;
+
+import lombok.Getter;
+
+/**
+ * 对局事件类型枚举（用于对局事件日志）
+ */
+@Getter
+public enum RoundEventType {
+    STARTED(1, "开局"),
+    BET(2, "投注"),
+    DEALT(3, "发牌"),
+    REVEALED(4, "开牌"),
+    SETTLED(5, "结算"),
+    CANCELLED(6, "取消");
+
+    private final int code;
+    private final String desc;
+
+    RoundEventType(int code, String desc) {
+        this.code = code;
+        this.desc = desc;
+    }
+
+    public static RoundEventType fromCode(int code) {
+        for (RoundEventType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否为对局终止事件（终止后该对局不再需要恢复）
+     */
+    public boolean isTerminal() {
+        return this == SETTLED || this == CANCELLED;
+    }
+}
@@ -8,7 +8,9 @@ import lombok.Getter;
 @Getter
 public enum RoundStatus {
     IN_PROGRESS(0, "进行中"),
-    SETTLED(1, "已结算");
+    SETTLED(1, "已结算"),
+    SETTLING(2, "结算中"),
+    CANCELLED(3, "已取消");
 
     private final int code;
     private final String desc;
@@ -0,0 +1,17 @@
+package com.douniu.journal;
+
+import com.douniu.enums.RoundEventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 对局事件（从事件日志中回放得到）
+ */
+@Data
+@AllArgsConstructor
+public class RoundEvent {
+    private RoundEventType type;
+    private Long gameRecordId;
+    private long timestamp;
+    private String payload; // 事件数据JSON
+}
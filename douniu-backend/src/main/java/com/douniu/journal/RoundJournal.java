@@ -0,0 +1,288 @@
+package com.douniu.journal;
+
+import com.alibaba.fastjson2.JSON;
+import com.douniu.enums.RoundEventType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 对局事件日志（内存映射文件，按段滚动）
+ *
+ * 进行中对局的牌面、投注、开牌等状态只保存在内存中，JVM 重启后会丢失。
+ * 每个对局事件追加写入内存映射的日志段，重启时回放日志重建未结算的对局。
+ *
+ * 记录格式：[int 长度][byte 类型][long 对局ID][long 时间戳][payload JSON][int CRC32]
+ * 长度为0（映射文件未写入区域）或校验失败（写入中途崩溃）时视为日志结尾。
+ *
+ * 追加只写入页缓存，不逐条 fsync，由后台线程按固定间隔统一刷盘（组提交）。
+ * 所有对局都已终止的旧日志段在滚动时删除。
+ */
+@Slf4j
+@Component
+public class RoundJournal {
+
+    private static final String SEGMENT_PREFIX = "round-journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // 类型(1) + 对局ID(8) + 时间戳(8)
+    private static final int HEADER_SIZE = 17;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentSize;
+
+    // 未终止对局 -> 该对局第一条事件所在的日志段序号（早于最小序号的日志段可以删除）
+    private final Map<Long, Integer> openRounds = new ConcurrentHashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segmentIndex;
+    private volatile boolean dirty;
+    private ScheduledExecutorService flusher;
+
+    public RoundJournal(@Value("${douniu.journal.enabled:true}") boolean enabled,
+                        @Value("${douniu.journal.dir:data/journal}") String dir,
+                        @Value("${douniu.journal.segment-size:67108864}") int segmentSize,
+                        @Value("${douniu.journal.flush-interval-ms:50}") long flushIntervalMs) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.segmentSize = segmentSize;
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(this.dir);
+            List<Integer> segments = listSegments();
+            if (segments.isEmpty()) {
+                openSegment(0, 0);
+            } else {
+                // 扫描已有日志段，重建未终止对局并定位最后一个日志段的写入位置
+                int end = 0;
+                for (Integer index : segments) {
+                    end = scanSegment(index, event -> trackRound(event.getType(), event.getGameRecordId(), index));
+                }
+                openSegment(segments.get(segments.size() - 1), end);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("对局事件日志初始化失败: " + e.getMessage(), e);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "round-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("对局事件日志已打开 - 目录: {}, 当前日志段: {}, 未终止对局数: {}", this.dir.toAbsolutePath(), segmentIndex, openRounds.size());
+    }
+
+    /**
+     * 追加对局事件（只写入页缓存，由后台线程组提交刷盘）
+     * 日志写入失败不影响对局流程，只记录日志
+     */
+    public void append(RoundEventType type, Long gameRecordId, Object payload) {
+        if (!enabled) {
+            return;
+        }
+        byte[] data = payload != null ? JSON.toJSONBytes(payload) : new byte[0];
+        int bodyLength = HEADER_SIZE + data.length;
+        int recordLength = 4 + bodyLength + 4;
+        if (recordLength > segmentSize) {
+            log.error("对局事件过大，无法写入日志 - 对局ID: {}, 事件: {}, 大小: {}", gameRecordId, type, recordLength);
+            return;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.put((byte) type.getCode());
+        body.putLong(gameRecordId);
+        body.putLong(System.currentTimeMillis());
+        body.put(data);
+        body.flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        synchronized (this) {
+            try {
+                if (buffer.remaining() < recordLength) {
+                    rotate();
+                }
+                buffer.putInt(bodyLength);
+                buffer.put(body);
+                buffer.putInt((int) crc.getValue());
+                dirty = true;
+                trackRound(type, gameRecordId, segmentIndex);
+            } catch (IOException e) {
+                log.error("写入对局事件日志失败 - 对局ID: {}, 事件: {}", gameRecordId, type, e);
+            }
+        }
+    }
+
+    /**
+     * 按写入顺序回放全部日志事件
+     */
+    public synchronized void replay(Consumer<RoundEvent> consumer) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (Integer index : listSegments()) {
+                scanSegment(index, consumer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("回放对局事件日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 刷盘（组提交）
+     */
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        MappedByteBuffer target;
+        synchronized (this) {
+            target = buffer;
+            dirty = false;
+        }
+        try {
+            target.force();
+        } catch (Exception e) {
+            log.warn("对局事件日志刷盘失败", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭对局事件日志失败", e);
+        }
+    }
+
+    private void trackRound(RoundEventType type, Long gameRecordId, int index) {
+        if (type == null) {
+            return;
+        }
+        if (type.isTerminal()) {
+            openRounds.remove(gameRecordId);
+        } else {
+            openRounds.putIfAbsent(gameRecordId, index);
+        }
+    }
+
+    /**
+     * 滚动到下一个日志段，并删除所有对局都已终止的旧日志段
+     */
+    private void rotate() throws IOException {
+        buffer.force();
+        channel.close();
+        openSegment(segmentIndex + 1, 0);
+
+        int keepFrom = openRounds.values().stream().mapToInt(Integer::intValue).min().orElse(segmentIndex);
+        for (Integer index : listSegments()) {
+            if (index < keepFrom) {
+                Files.deleteIfExists(segmentPath(index));
+                log.info("删除已终止的对局事件日志段: {}", index);
+            }
+        }
+    }
+
+    private void openSegment(int index, int position) throws IOException {
+        channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.position(position);
+        segmentIndex = index;
+    }
+
+    /**
+     * 扫描日志段中的有效记录
+     * @return 有效数据的结束位置
+     */
+    private int scanSegment(int index, Consumer<RoundEvent> consumer) throws IOException {
+        ByteBuffer segment;
+        if (buffer != null && index == segmentIndex) {
+            segment = buffer.duplicate();
+        } else {
+            try (FileChannel readChannel = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                segment = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            }
+        }
+
+        int limit = segment.capacity();
+        int position = 0;
+        CRC32 crc = new CRC32();
+        while (position + 4 <= limit) {
+            int bodyLength = segment.getInt(position);
+            if (bodyLength < HEADER_SIZE || position + 4 + bodyLength + 4 > limit) {
+                break;
+            }
+            ByteBuffer body = segment.duplicate();
+            body.position(position + 4).limit(position + 4 + bodyLength);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != segment.getInt(position + 4 + bodyLength)) {
+                log.warn("对局事件日志段 {} 在位置 {} 校验失败，视为日志结尾", index, position);
+                break;
+            }
+
+            RoundEventType type = RoundEventType.fromCode(body.get());
+            long gameRecordId = body.getLong();
+            long timestamp = body.getLong();
+            byte[] data = new byte[body.remaining()];
+            body.get(data);
+            if (type != null) {
+                consumer.accept(new RoundEvent(type, gameRecordId, timestamp, new String(data, StandardCharsets.UTF_8)));
+            }
+            position += 4 + bodyLength + 4;
+        }
+        return position;
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> segments.add(Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        segments.sort(Integer::compareTo);
+        return segments;
+    }
+
+    private Path segmentPath(int index) {
+        return dir.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,137 @@
+package com.douniu.lobby;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.douniu.dto.ApiResponse;
+import com.douniu.entity.Room;
+import com.douniu.entity.RoomPlayer;
+import com.douniu.entity.User;
+import com.douniu.enums.GameStatus;
+import com.douniu.mapper.RoomMapper;
+import com.douniu.mapper.RoomPlayerMapper;
+import com.douniu.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * 大厅房间索引
+ *
+ * 启动时加载所有等待中和游戏中的房间，之后只在房间变更事件（事务提交后）时重新加载该房间，
+ * /room/available 直接从内存返回，并把增量变化（ADD/UPDATE/REMOVE）推送到 /topic/lobby。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LobbyIndex {
+
+    public static final String LOBBY_TOPIC = "/topic/lobby";
+
+    // 启动加载时每批统计玩家数量的房间数
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final RoomMapper roomMapper;
+    private final RoomPlayerMapper roomPlayerMapper;
+    private final UserService userService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    // 房间ID倒序（自增ID与创建时间同序，即最新创建的房间在前）
+    private final ConcurrentSkipListMap<Long, Room> rooms = new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+    /**
+     * 可加入的房间列表（最新创建的在前）
+     */
+    public List<Room> getAvailableRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    /**
+     * 启动时加载所有等待中和游戏中的房间
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LambdaQueryWrapper<Room> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(Room::getStatus, GameStatus.WAITING.getCode(), GameStatus.GAMING.getCode());
+        List<Room> available = roomMapper.selectList(wrapper);
+
+        Map<Long, User> creators = userService.getUsersByIds(
+                available.stream().map(Room::getCreatorId).collect(Collectors.toList()));
+        for (int from = 0; from < available.size(); from += LOAD_BATCH_SIZE) {
+            List<Room> batch = available.subList(from, Math.min(from + LOAD_BATCH_SIZE, available.size()));
+            Map<Long, Integer> playerCounts = countPlayers(batch.stream().map(Room::getId).collect(Collectors.toList()));
+            for (Room room : batch) {
+                User creator = creators.get(room.getCreatorId());
+                room.setCreatorNickname(creator != null ? creator.getNickname() : null);
+                room.setPlayerCount(playerCounts.getOrDefault(room.getId(), 0));
+                rooms.put(room.getId(), room);
+            }
+        }
+        log.info("大厅房间索引加载完成 - 房间数: {}", rooms.size());
+    }
+
+    /**
+     * 房间变更后重新加载该房间并推送增量（事务提交后执行，无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRoomChanged(RoomChangedEvent event) {
+        try {
+            refresh(event.getRoomId());
+        } catch (Exception e) {
+            log.error("更新大厅房间索引失败 - 房间ID: {}", event.getRoomId(), e);
+        }
+    }
+
+    /**
+     * 串行执行，避免同一房间的两次刷新乱序覆盖
+     */
+    private synchronized void refresh(Long roomId) {
+        Room room = roomMapper.selectById(roomId);
+        boolean available = room != null
+                && (room.getStatus() == GameStatus.WAITING.getCode() || room.getStatus() == GameStatus.GAMING.getCode());
+        if (!available) {
+            if (rooms.remove(roomId) != null) {
+                Map<String, Object> delta = new HashMap<>();
+                delta.put("type", "REMOVE");
+                delta.put("roomId", roomId);
+                messagingTemplate.convertAndSend(LOBBY_TOPIC, ApiResponse.success(delta));
+            }
+            return;
+        }
+
+        User creator = userService.getUserProfile(room.getCreatorId());
+        room.setCreatorNickname(creator != null ? creator.getNickname() : null);
+        room.setPlayerCount(countPlayers(List.of(roomId)).getOrDefault(roomId, 0));
+        Room previous = rooms.put(roomId, room);
+
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("type", previous == null ? "ADD" : "UPDATE");
+        delta.put("room", room);
+        messagingTemplate.convertAndSend(LOBBY_TOPIC, ApiResponse.success(delta));
+    }
+
+    /**
+     * 一次分组查询统计多个房间的玩家数量
+     */
+    private Map<Long, Integer> countPlayers(Collection<Long> roomIds) {
+        Map<Long, Integer> counts = new HashMap<>();
+        if (roomIds.isEmpty()) {
+            return counts;
+        }
+        QueryWrapper<RoomPlayer> wrapper = new QueryWrapper<>();
+        wrapper.select("room_id", "COUNT(*) AS player_count")
+                .in("room_id", roomIds)
+                .groupBy("room_id");
+        for (Map<String, Object> row : roomPlayerMapper.selectMaps(wrapper)) {
+            counts.put(((Number) row.get("room_id")).longValue(), ((Number) row.get("player_count")).intValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,13 @@
+package com.douniu.lobby;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 房间变更事件（创建、加入、离开、状态变化），用于更新大厅房间索引
+ */
+@Data
+@AllArgsConstructor
+public class RoomChangedEvent {
+    private Long roomId;
+}
@@ -3,8 +3,44 @@ package com.douniu.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.douniu.entity.GameDetail;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface GameDetailMapper extends BaseMapper<GameDetail> {
-}
 
+    /**
+     * 统计时间段内已结算对局的用户盈利（用于重建周期排行榜）
+     * 依赖索引：game_record(status, end_time)
+     */
+    @Select("""
+            SELECT d.user_id AS userId, SUM(d.score_change) AS profit
+            FROM game_record gr
+            JOIN game_detail d ON d.game_record_id = gr.id
+            WHERE gr.status = 1 AND gr.end_time >= #{from} AND gr.end_time < #{to}
+            GROUP BY d.user_id
+            """)
+    List<Map<String, Object>> sumProfitByUser(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按用户、牌型、是否坐庄分组统计已结算对局（用于重建用户统计），按用户ID排序流式读取
+     */
+    @Select("""
+            SELECT d.user_id AS userId, d.card_type AS cardType, (d.user_id = gr.dealer_id) AS asDealer,
+                   COUNT(*) AS rounds, SUM(d.is_winner) AS wins, SUM(d.score_change) AS profit
+            FROM game_detail d
+            JOIN game_record gr ON gr.id = d.game_record_id
+            WHERE gr.status = 1
+            GROUP BY d.user_id, d.card_type, asDealer
+            ORDER BY d.user_id
+            """)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<Map<String, Object>> streamUserStats();
+}
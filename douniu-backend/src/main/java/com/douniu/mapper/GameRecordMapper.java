@@ -3,8 +3,62 @@ package com.douniu.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.douniu.entity.GameRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface GameRecordMapper extends BaseMapper<GameRecord> {
-}
 
+    /**
+     * 按 (局数, 对局ID) 游标分页查询房间的对局记录，同时关联用户在该对局中的详情
+     * 依赖索引：game_record(room_id, round_number)、game_detail(game_record_id, user_id)
+     */
+    @Select("""
+            SELECT gr.id AS id, gr.room_id AS roomId, gr.round_number AS roundNumber,
+                   gr.start_time AS startTime, gr.end_time AS endTime, gr.status AS status,
+                   d.score_change AS scoreChange, d.card_type AS cardType, d.bet_amount AS betAmount
+            FROM game_record gr
+            LEFT JOIN game_detail d ON d.game_record_id = gr.id AND d.user_id = #{userId}
+            WHERE gr.room_id = #{roomId}
+              AND (gr.round_number, gr.id) > (#{afterRound}, #{afterId})
+            ORDER BY gr.round_number, gr.id
+            LIMIT #{limit}
+            """)
+    List<Map<String, Object>> selectRoomRecordPage(@Param("roomId") Long roomId,
+                                                   @Param("userId") Long userId,
+                                                   @Param("afterRound") int afterRound,
+                                                   @Param("afterId") long afterId,
+                                                   @Param("limit") int limit);
+
+    /**
+     * 流式读取对局及全部详情（用于导出），按对局ID、座位号排序
+     * 使用服务端游标分批拉取（需要连接参数 useCursorFetch=true），内存占用与结果行数无关
+     */
+    @Select("""
+            <script>
+            SELECT gr.id AS gameRecordId, gr.room_id AS roomId, gr.round_number AS roundNumber,
+                   gr.dealer_id AS dealerId, gr.status AS status, gr.start_time AS startTime, gr.end_time AS endTime,
+                   d.user_id AS userId, d.seat_number AS seatNumber, d.bet_amount AS betAmount, d.cards AS cards,
+                   d.card_type AS cardType, d.strength AS strength, d.score_change AS scoreChange, d.is_winner AS isWinner
+            FROM game_record gr
+            LEFT JOIN game_detail d ON d.game_record_id = gr.id
+            <where>
+                <if test="roomId != null">gr.room_id = #{roomId}</if>
+                <if test="startFrom != null">AND gr.start_time &gt;= #{startFrom}</if>
+                <if test="startTo != null">AND gr.start_time &lt; #{startTo}</if>
+            </where>
+            ORDER BY gr.id, d.seat_number
+            </script>
+            """)
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<Map<String, Object>> streamRoundDetails(@Param("roomId") Long roomId,
+                                                   @Param("startFrom") LocalDateTime startFrom,
+                                                   @Param("startTo") LocalDateTime startTo);
+}
@@ -0,0 +1,9 @@
+package com.douniu.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.douniu.entity.RoomArchive;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface RoomArchiveMapper extends BaseMapper<RoomArchive> {
+}
@@ -3,8 +3,35 @@ package com.douniu.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.douniu.entity.Room;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface RoomMapper extends BaseMapper<Room> {
+
+    /**
+     * 查询用户参与的房间，同时返回创建者昵称、玩家数量和用户在房间内已结算对局的总盈利
+     * 总盈利读取结算时维护的 user_room_summary（主键 user_id, room_id），已归档的对局也包含在内
+     */
+    @Select("""
+            SELECT r.*,
+                   (SELECT u.nickname FROM `user` u WHERE u.id = r.creator_id) AS creator_nickname,
+                   (SELECT COUNT(*) FROM room_player p WHERE p.room_id = r.id) AS player_count,
+                   COALESCE(s.total_profit, 0) AS total_profit
+            FROM room_player rp
+            JOIN room r ON r.id = rp.room_id
+            LEFT JOIN user_room_summary s ON s.user_id = rp.user_id AND s.room_id = r.id
+            WHERE rp.user_id = #{userId}
+            ORDER BY r.created_at DESC
+            """)
+    List<Room> selectUserRooms(@Param("userId") Long userId);
+
+    /**
+     * 加锁读取房间（在事务中读取最新提交的版本，而不是事务开始时的快照）
+     */
+    @Select("SELECT * FROM room WHERE id = #{id} FOR UPDATE")
+    Room selectByIdForUpdate(@Param("id") Long id);
 }
 
@@ -0,0 +1,55 @@
+package com.douniu.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.UserRoomSummary;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+
+@Mapper
+public interface UserRoomSummaryMapper extends BaseMapper<UserRoomSummary> {
+
+    /**
+     * 按对局详情批量累加房间战绩（一条语句更新本局所有玩家）
+     * best_card_type 必须在 best_strength 之前赋值，此时比较的仍是旧的 best_strength
+     */
+    @Insert("""
+            <script>
+            INSERT INTO user_room_summary (user_id, room_id, rounds_played, total_profit, wins, best_card_type, best_strength)
+            VALUES
+            <foreach collection="details" item="d" separator=",">
+                (#{d.userId}, #{roomId}, 1, #{d.scoreChange}, #{d.isWinner}, #{d.cardTypeCode}, #{d.strength})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+                rounds_played = rounds_played + VALUES(rounds_played),
+                total_profit = total_profit + VALUES(total_profit),
+                wins = wins + VALUES(wins),
+                best_card_type = IF(VALUES(best_strength) > best_strength, VALUES(best_card_type), best_card_type),
+                best_strength = GREATEST(best_strength, VALUES(best_strength))
+            </script>
+            """)
+    int accumulate(@Param("roomId") Long roomId, @Param("details") Collection<GameDetail> details);
+
+    /**
+     * 清空战绩汇总（重建前调用）
+     */
+    @Delete("DELETE FROM user_room_summary")
+    int deleteAll();
+
+    /**
+     * 从热表中已结算的对局重建战绩汇总（牌力值 = 牌型编码 × 64 + 最大单牌值，因此最大牌型 = 最大牌力值 DIV 64）
+     */
+    @Insert("""
+            INSERT INTO user_room_summary (user_id, room_id, rounds_played, total_profit, wins, best_card_type, best_strength)
+            SELECT d.user_id, gr.room_id, COUNT(*), SUM(d.score_change), SUM(d.is_winner), MAX(d.strength) DIV 64, MAX(d.strength)
+            FROM game_detail d
+            JOIN game_record gr ON gr.id = d.game_record_id
+            WHERE gr.status = 1
+            GROUP BY d.user_id, gr.room_id
+            """)
+    int rebuildFromHistory();
+}
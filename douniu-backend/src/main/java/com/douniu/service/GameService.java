@@ -1,14 +1,20 @@
 package com.douniu.service;
 
 import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.douniu.entity.GameDetail;
 import com.douniu.entity.GameRecord;
 import com.douniu.entity.Room;
 import com.douniu.entity.RoomPlayer;
 import com.douniu.enums.CardType;
 import com.douniu.enums.GameStatus;
+import com.douniu.enums.RoundEventType;
 import com.douniu.enums.RoundStatus;
+import com.douniu.journal.RoundEvent;
+import com.douniu.journal.RoundJournal;
+import com.douniu.lobby.RoomChangedEvent;
 import com.douniu.mapper.GameDetailMapper;
 import com.douniu.mapper.GameRecordMapper;
 import com.douniu.mapper.RoomMapper;
@@ -16,11 +22,17 @@ import com.douniu.mapper.RoomPlayerMapper;
 import com.douniu.utils.CardTypeCalculator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,15 +45,36 @@ public class GameService {
     private final GameRecordMapper gameRecordMapper;
     private final GameDetailMapper gameDetailMapper;
     private final UserService userService;
-
+    private final UserRoomSummaryService userRoomSummaryService;
+    private final LeaderboardService leaderboardService;
+    private final UserStatsService userStatsService;
+    private final RoomService roomService;
+    private final RoundJournal roundJournal;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 以下对局状态由消息处理线程写入，对局快照接口在HTTP线程读取，内外层都使用并发容器
     // 存储当前对局的牌面信息（key: gameRecordId, value: Map<userId, List<Card>>）
-    private final Map<Long, Map<Long, List<CardTypeCalculator.Card>>> currentGameCards = new HashMap<>();
+    private final Map<Long, Map<Long, List<CardTypeCalculator.Card>>> currentGameCards = new ConcurrentHashMap<>();
     // 存储当前对局的投注信息（key: gameRecordId, value: Map<userId, betAmount>）
-    private final Map<Long, Map<Long, Integer>> currentGameBets = new HashMap<>();
+    private final Map<Long, Map<Long, Integer>> currentGameBets = new ConcurrentHashMap<>();
     // 存储当前对局的开牌状态（key: gameRecordId, value: Set<userId>）
-    private final Map<Long, java.util.Set<Long>> currentGameRevealed = new HashMap<>();
+    private final Map<Long, Set<Long>> currentGameRevealed = new ConcurrentHashMap<>();
+    // 存储当前对局启用的牌型（key: gameRecordId, value: Set<牌型名称>），开局时从房间读取
+    private final Map<Long, Set<String>> currentGameCardTypes = new ConcurrentHashMap<>();
     // 存储当前对局的已准备玩家（key: roomId, value: Set<userId>）
-    private final Map<Long, Set<Long>> currentRoundReadyPlayers = new HashMap<>();
+    private final Map<Long, Set<Long>> currentRoundReadyPlayers = new ConcurrentHashMap<>();
+    // 存储房间当前未结算的对局（key: roomId, value: GameRecord）
+    private final Map<Long, GameRecord> currentRoomRounds = new ConcurrentHashMap<>();
+
+    /**
+     * 房间当前对局的内存状态副本（用于对局快照）
+     * @param cards 尚未发牌时为null
+     * @param enabledTypes 开局时房间启用的牌型
+     */
+    public record CurrentRound(GameRecord record, Map<Long, Integer> bets,
+                               Map<Long, List<CardTypeCalculator.Card>> cards, Set<Long> revealed,
+                               Set<String> enabledTypes) {
+    }
 
     /**
      * 开始新一局游戏
@@ -49,7 +82,7 @@ public class GameService {
      */
     @Transactional
     public GameRecord startNewRound(Long roomId, Long adminId, Set<Long> readyPlayerIds) {
-        // 使用悲观锁锁定房间记录，避免并发问题
+        // 房间带乐观锁版本号，并发开局时只有一个请求能推进 currentRound
         Room room = roomMapper.selectById(roomId);
         if (room == null) {
             throw new RuntimeException("房间不存在");
@@ -59,9 +92,6 @@ public class GameService {
             throw new RuntimeException("无权限");
         }
 
-        // 重新查询房间，确保获取最新的 currentRound
-        room = roomMapper.selectById(roomId);
-        
         if (room.getCurrentRound() >= room.getMaxRounds()) {
             throw new RuntimeException("已达到最大局数");
         }
@@ -89,14 +119,17 @@ public class GameService {
                 .findFirst()
                 .orElse(players.get(0));
         
-        // 保存当前对局的已准备玩家列表
-        if (readyPlayerIds != null) {
-            currentRoundReadyPlayers.put(roomId, readyPlayerIds);
+        // 先按版本号更新房间状态，版本不一致说明已被其他请求开局，直接失败
+        int nextRound = room.getCurrentRound() + 1;
+        room.setCurrentRound(nextRound);
+        room.setStatus(GameStatus.GAMING.getCode());
+        if (roomMapper.updateById(room) == 0) {
+            throw new RuntimeException("房间状态已变更，请重试");
         }
+        eventPublisher.publishEvent(new RoomChangedEvent(roomId));
 
         // 只在第一局开始时重置所有玩家的房间积分为0
         // 之后每局累加/减，直到房间结束
-        int nextRound = room.getCurrentRound() + 1;
         if (nextRound == 1) {
             // 第一局，重置所有玩家房间积分为0
             for (RoomPlayer player : players) {
@@ -105,7 +138,7 @@ public class GameService {
             }
         }
 
-        // 创建对局记录（先创建记录，再更新房间状态）
+        // 创建对局记录
         GameRecord record = new GameRecord();
         record.setRoomId(roomId);
         record.setRoundNumber(nextRound); // 使用计算出的 nextRound，而不是 room.getCurrentRound()
@@ -114,10 +147,18 @@ public class GameService {
         record.setStartTime(LocalDateTime.now());
         gameRecordMapper.insert(record);
 
-        // 更新房间状态
-        room.setCurrentRound(nextRound);
-        room.setStatus(GameStatus.GAMING.getCode());
-        roomMapper.updateById(room);
+        // 保存当前对局的已准备玩家列表
+        if (readyPlayerIds != null) {
+            currentRoundReadyPlayers.put(roomId, copyOf(readyPlayerIds));
+        }
+        currentGameCardTypes.put(record.getId(), parseCardTypes(room));
+        currentRoomRounds.put(roomId, record);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("roomId", roomId);
+        event.put("dealerId", dealer.getUserId());
+        event.put("readyPlayerIds", readyPlayerIds);
+        appendJournal(RoundEventType.STARTED, record.getId(), event);
 
         return record;
     }
@@ -143,7 +184,12 @@ public class GameService {
         }
 
         // 保存投注信息
-        currentGameBets.computeIfAbsent(gameRecordId, k -> new HashMap<>()).put(userId, betAmount);
+        currentGameBets.computeIfAbsent(gameRecordId, k -> new ConcurrentHashMap<>()).put(userId, betAmount);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("userId", userId);
+        event.put("betAmount", betAmount);
+        appendJournal(RoundEventType.BET, gameRecordId, event);
     }
 
     /**
@@ -185,7 +231,7 @@ public class GameService {
         List<List<CardTypeCalculator.Card>> hands = CardTypeCalculator.dealCards(deck, players.size());
 
         // 保存牌面信息
-        Map<Long, List<CardTypeCalculator.Card>> cardsMap = new HashMap<>();
+        Map<Long, List<CardTypeCalculator.Card>> cardsMap = new ConcurrentHashMap<>();
         for (int i = 0; i < players.size(); i++) {
             cardsMap.put(players.get(i).getUserId(), hands.get(i));
         }
@@ -194,18 +240,50 @@ public class GameService {
         // 重置开牌状态
         currentGameRevealed.remove(gameRecordId);
 
+        // 牌面按 花色 × 13 + (点数 - 1) 编码写入日志
+        Map<String, List<Integer>> journalCards = new HashMap<>();
+        for (Map.Entry<Long, List<CardTypeCalculator.Card>> entry : cardsMap.entrySet()) {
+            journalCards.put(String.valueOf(entry.getKey()), entry.getValue().stream()
+                    .map(card -> card.getSuit() * 13 + card.getRank() - 1)
+                    .collect(Collectors.toList()));
+        }
+        appendJournal(RoundEventType.DEALT, gameRecordId, Map.of("cards", journalCards));
+
         return cardsMap;
     }
 
+    /**
+     * 结算结果
+     * @param settledNow 是否由本次调用完成结算；为false时 details 是之前已落库的结算结果，调用方不应再次广播
+     */
+    public record SettleResult(Map<Long, GameDetail> details, boolean settledNow) {
+    }
+
     /**
      * 结算
+     * 结算入口有多个（/game/settle、展示后自动结算、自动开牌），先以条件更新把对局从"进行中"置为"结算中"，
+     * 只有抢到状态的调用方执行结算，其余调用方直接返回已落库的结算结果
      */
     @Transactional
-    public Map<Long, GameDetail> settleRound(Long gameRecordId) {
+    public SettleResult settleRound(Long gameRecordId) {
+        LambdaUpdateWrapper<GameRecord> casWrapper = new LambdaUpdateWrapper<>();
+        casWrapper.eq(GameRecord::getId, gameRecordId)
+                .eq(GameRecord::getStatus, RoundStatus.IN_PROGRESS.getCode())
+                .set(GameRecord::getStatus, RoundStatus.SETTLING.getCode())
+                .setSql("version = version + 1");
+        boolean acquired = gameRecordMapper.update(null, casWrapper) > 0;
+
         GameRecord record = gameRecordMapper.selectById(gameRecordId);
         if (record == null) {
             throw new RuntimeException("对局不存在");
         }
+        if (!acquired) {
+            if (record.getStatus() == RoundStatus.SETTLED.getCode()) {
+                log.info("对局 {} 已结算，返回已有结算结果", gameRecordId);
+                return new SettleResult(getSettledDetails(gameRecordId), false);
+            }
+            throw new RuntimeException("对局正在结算中");
+        }
 
         Room room = roomMapper.selectById(record.getRoomId());
         List<String> enabledCardTypes = JSON.parseArray(room.getEnabledCardTypes(), String.class);
@@ -303,8 +381,8 @@ public class GameService {
             detail.setSeatNumber(player.getSeatNumber());
             detail.setBetAmount(betAmount);
             detail.setCards(JSON.toJSONString(cardsMap.get(player.getUserId())));
-            detail.setCardType(playerCardType.getName());
-            detail.setMultiplier(playerCardType.getMultiplier());
+            detail.setCardTypeCode(playerCardType.getCode());
+            detail.setStrength(CardTypeCalculator.calculateStrength(playerCardType, playerCards));
             detail.setScoreChange(scoreChange);
             detail.setIsWinner(isWinner ? 1 : 0);
             gameDetailMapper.insert(detail);
@@ -332,8 +410,8 @@ public class GameService {
         dealerDetail.setSeatNumber(dealer.getSeatNumber());
         dealerDetail.setBetAmount(0);
         dealerDetail.setCards(JSON.toJSONString(dealerCards));
-        dealerDetail.setCardType(dealerCardType.getName());
-        dealerDetail.setMultiplier(dealerCardType.getMultiplier());
+        dealerDetail.setCardTypeCode(dealerCardType.getCode());
+        dealerDetail.setStrength(CardTypeCalculator.calculateStrength(dealerCardType, dealerCards));
         dealerDetail.setScoreChange(dealerScoreChange);
         dealerDetail.setIsWinner(dealerScoreChange > 0 ? 1 : 0);
         gameDetailMapper.insert(dealerDetail);
@@ -347,27 +425,58 @@ public class GameService {
 
         details.put(dealer.getUserId(), dealerDetail);
 
-        // 更新对局记录状态
+        // 累加本局所有玩家的房间战绩汇总（一条批量语句）
+        userRoomSummaryService.recordSettlement(record.getRoomId(), details.values());
+
+        // 更新排行榜和用户统计（事务提交后）
+        leaderboardService.recordSettlement(details.values());
+        userStatsService.recordSettlement(dealer.getUserId(), details.values());
+
+        // 更新对局记录状态（结算中 -> 已结算）
         record.setStatus(RoundStatus.SETTLED.getCode());
         record.setEndTime(LocalDateTime.now());
-        gameRecordMapper.updateById(record);
+        if (gameRecordMapper.updateById(record) == 0) {
+            throw new RuntimeException("对局状态已变更，请重试");
+        }
 
-        // 检查是否所有对局已完成（使用之前获取的room对象）
-        if (room != null && room.getCurrentRound() >= room.getMaxRounds()) {
-            // 所有对局已完成，更新房间状态为"已结束"
-            room.setStatus(GameStatus.FINISHED.getCode());
-            roomMapper.updateById(room);
+        // 检查是否所有对局已完成，更新房间状态为"已结束"（按最新的房间判断，已被提前结算的房间不再修改）
+        boolean finished = roomService.updateRoom(record.getRoomId(), latest -> {
+            if (latest.getStatus() == GameStatus.FINISHED.getCode() || latest.getCurrentRound() < latest.getMaxRounds()) {
+                return false;
+            }
+            latest.setStatus(GameStatus.FINISHED.getCode());
+            return true;
+        });
+        if (finished) {
+            eventPublisher.publishEvent(new RoomChangedEvent(record.getRoomId()));
         }
 
         // 清理缓存
         currentGameCards.remove(gameRecordId);
         currentGameBets.remove(gameRecordId);
         currentGameRevealed.remove(gameRecordId);
+        currentGameCardTypes.remove(gameRecordId);
         currentRoundReadyPlayers.remove(record.getRoomId());
+        currentRoomRounds.remove(record.getRoomId());
 
-        return details;
+        appendJournal(RoundEventType.SETTLED, gameRecordId, null);
+
+        return new SettleResult(details, true);
     }
     
+    /**
+     * 获取已结算对局的结算结果（key: userId）
+     */
+    private Map<Long, GameDetail> getSettledDetails(Long gameRecordId) {
+        LambdaQueryWrapper<GameDetail> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(GameDetail::getGameRecordId, gameRecordId);
+        Map<Long, GameDetail> details = new HashMap<>();
+        for (GameDetail detail : gameDetailMapper.selectList(wrapper)) {
+            details.put(detail.getUserId(), detail);
+        }
+        return details;
+    }
+
     /**
      * 记录玩家开牌
      */
@@ -378,7 +487,9 @@ public class GameService {
         }
         
         // 记录开牌状态
-        currentGameRevealed.computeIfAbsent(gameRecordId, k -> new java.util.HashSet<>()).add(userId);
+        currentGameRevealed.computeIfAbsent(gameRecordId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+
+        appendJournal(RoundEventType.REVEALED, gameRecordId, Map.of("userId", userId));
     }
     
     /**
@@ -391,7 +502,7 @@ public class GameService {
         }
         
         List<RoomPlayer> players = getRoomPlayers(record.getRoomId());
-        java.util.Set<Long> revealed = currentGameRevealed.getOrDefault(gameRecordId, new java.util.HashSet<>());
+        Set<Long> revealed = currentGameRevealed.getOrDefault(gameRecordId, Set.of());
         
         // 所有玩家都需要开牌（包括庄家）
         return revealed.size() == players.size();
@@ -402,17 +513,17 @@ public class GameService {
      */
     @Transactional
     public void finishGame(Long roomId, Long adminId) {
-        Room room = roomMapper.selectById(roomId);
-        if (room == null) {
+        boolean updated = roomService.updateRoom(roomId, room -> {
+            if (!room.getAdminId().equals(adminId)) {
+                throw new RuntimeException("无权限");
+            }
+            room.setStatus(GameStatus.FINISHED.getCode());
+            return true;
+        });
+        if (!updated) {
             throw new RuntimeException("房间不存在");
         }
-
-        if (!room.getAdminId().equals(adminId)) {
-            throw new RuntimeException("无权限");
-        }
-
-        room.setStatus(GameStatus.FINISHED.getCode());
-        roomMapper.updateById(room);
+        eventPublisher.publishEvent(new RoomChangedEvent(roomId));
     }
 
     /**
@@ -439,6 +550,142 @@ public class GameService {
         roomPlayerMapper.updateById(player);
     }
 
+    /**
+     * 写入对局事件日志（在事务中时，提交后再写入，避免记录回滚的事件）
+     */
+    private void appendJournal(RoundEventType type, Long gameRecordId, Object payload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roundJournal.append(type, gameRecordId, payload);
+                }
+            });
+        } else {
+            roundJournal.append(type, gameRecordId, payload);
+        }
+    }
+
+    /**
+     * 启动时回放对局事件日志，恢复未结算的对局
+     * - 日志中有开局事件的对局：重建已准备玩家、投注、牌面和开牌状态，玩家可以继续开牌并结算
+     * - 日志中没有记录的进行中对局：无法恢复，标记为已取消（投注在结算时才扣减，取消即全额退还）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverUnsettledRounds() {
+        Map<Long, List<RoundEvent>> journalRounds = new LinkedHashMap<>();
+        roundJournal.replay(event -> {
+            if (event.getType().isTerminal()) {
+                journalRounds.remove(event.getGameRecordId());
+            } else {
+                journalRounds.computeIfAbsent(event.getGameRecordId(), k -> new ArrayList<>()).add(event);
+            }
+        });
+
+        LambdaQueryWrapper<GameRecord> wrapper = new LambdaQueryWrapper<>();
+        wrapper.in(GameRecord::getStatus, RoundStatus.IN_PROGRESS.getCode(), RoundStatus.SETTLING.getCode());
+        List<GameRecord> unsettled = gameRecordMapper.selectList(wrapper);
+
+        for (GameRecord record : unsettled) {
+            List<RoundEvent> events = journalRounds.remove(record.getId());
+            if (events != null && events.get(0).getType() == RoundEventType.STARTED) {
+                restoreRound(record, events);
+                log.info("已从事件日志恢复对局 - 对局ID: {}, 房间ID: {}, 事件数: {}", record.getId(), record.getRoomId(), events.size());
+            } else {
+                cancelRound(record);
+                log.warn("对局无法从事件日志恢复，已取消 - 对局ID: {}, 房间ID: {}", record.getId(), record.getRoomId());
+            }
+        }
+
+        // 日志中剩余的对局在数据库中已不是进行中（事务回滚或已处理），关闭日志记录
+        for (Long gameRecordId : journalRounds.keySet()) {
+            roundJournal.append(RoundEventType.CANCELLED, gameRecordId, null);
+        }
+    }
+
+    private void restoreRound(GameRecord record, List<RoundEvent> events) {
+        Long gameRecordId = record.getId();
+        currentGameCardTypes.put(gameRecordId, parseCardTypes(roomMapper.selectById(record.getRoomId())));
+        currentRoomRounds.put(record.getRoomId(), record);
+        for (RoundEvent event : events) {
+            JSONObject payload = JSON.parseObject(event.getPayload());
+            switch (event.getType()) {
+                case STARTED:
+                    List<Long> readyPlayerIds = payload.getJSONArray("readyPlayerIds") != null
+                            ? payload.getJSONArray("readyPlayerIds").toList(Long.class) : null;
+                    if (readyPlayerIds != null) {
+                        currentRoundReadyPlayers.put(record.getRoomId(), copyOf(readyPlayerIds));
+                    }
+                    break;
+                case BET:
+                    currentGameBets.computeIfAbsent(gameRecordId, k -> new ConcurrentHashMap<>())
+                            .put(payload.getLong("userId"), payload.getInteger("betAmount"));
+                    break;
+                case DEALT:
+                    Map<Long, List<CardTypeCalculator.Card>> cardsMap = new ConcurrentHashMap<>();
+                    JSONObject cards = payload.getJSONObject("cards");
+                    for (String userId : cards.keySet()) {
+                        cardsMap.put(Long.valueOf(userId), cards.getJSONArray(userId).toList(Integer.class).stream()
+                                .map(code -> new CardTypeCalculator.Card(code / 13, code % 13 + 1))
+                                .collect(Collectors.toList()));
+                    }
+                    currentGameCards.put(gameRecordId, cardsMap);
+                    currentGameRevealed.remove(gameRecordId);
+                    break;
+                case REVEALED:
+                    currentGameRevealed.computeIfAbsent(gameRecordId, k -> ConcurrentHashMap.newKeySet()).add(payload.getLong("userId"));
+                    break;
+                default:
+                    break;
+            }
+        }
+        // 结算中的对局在事务回滚后回到进行中
+        if (record.getStatus() == RoundStatus.SETTLING.getCode()) {
+            record.setStatus(RoundStatus.IN_PROGRESS.getCode());
+            if (gameRecordMapper.updateById(record) == 0) {
+                log.warn("恢复对局状态失败，对局已被修改 - 对局ID: {}", gameRecordId);
+            }
+        }
+    }
+
+    private void cancelRound(GameRecord record) {
+        currentRoomRounds.remove(record.getRoomId(), record);
+        currentGameCards.remove(record.getId());
+        currentGameBets.remove(record.getId());
+        currentGameRevealed.remove(record.getId());
+        currentGameCardTypes.remove(record.getId());
+
+        record.setStatus(RoundStatus.CANCELLED.getCode());
+        record.setEndTime(LocalDateTime.now());
+        if (gameRecordMapper.updateById(record) == 0) {
+            log.warn("取消对局失败，对局已被修改 - 对局ID: {}", record.getId());
+            return;
+        }
+
+        boolean updated = roomService.updateRoom(record.getRoomId(), room -> {
+            if (room.getStatus() != GameStatus.GAMING.getCode()) {
+                return false;
+            }
+            room.setStatus(room.getCurrentRound() >= room.getMaxRounds()
+                    ? GameStatus.FINISHED.getCode() : GameStatus.WAITING.getCode());
+            return true;
+        });
+        if (updated) {
+            eventPublisher.publishEvent(new RoomChangedEvent(record.getRoomId()));
+        }
+        roundJournal.append(RoundEventType.CANCELLED, record.getId(), null);
+    }
+
+    private static Set<Long> copyOf(Collection<Long> userIds) {
+        Set<Long> set = ConcurrentHashMap.newKeySet();
+        set.addAll(userIds);
+        return set;
+    }
+
+    private static Set<String> parseCardTypes(Room room) {
+        return room != null ? Set.copyOf(JSON.parseArray(room.getEnabledCardTypes(), String.class)) : Set.of();
+    }
+
     private List<RoomPlayer> getRoomPlayers(Long roomId) {
         LambdaQueryWrapper<RoomPlayer> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(RoomPlayer::getRoomId, roomId)
@@ -466,5 +713,22 @@ public class GameService {
     public Map<Long, List<CardTypeCalculator.Card>> getCurrentGameCards(Long gameRecordId) {
         return currentGameCards.getOrDefault(gameRecordId, new HashMap<>());
     }
+
+    /**
+     * 获取房间当前未结算对局的状态（包括启动时从事件日志恢复的对局），没有时返回null
+     */
+    public CurrentRound getCurrentRound(Long roomId) {
+        GameRecord record = currentRoomRounds.get(roomId);
+        if (record == null) {
+            return null;
+        }
+        Long gameRecordId = record.getId();
+        Map<Long, List<CardTypeCalculator.Card>> cards = currentGameCards.get(gameRecordId);
+        return new CurrentRound(record,
+                new LinkedHashMap<>(currentGameBets.getOrDefault(gameRecordId, Map.of())),
+                cards != null ? new HashMap<>(cards) : null,
+                new HashSet<>(currentGameRevealed.getOrDefault(gameRecordId, Set.of())),
+                currentGameCardTypes.getOrDefault(gameRecordId, Set.of()));
+    }
 }
 
@@ -0,0 +1,274 @@
+package com.douniu.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.User;
+import com.douniu.enums.LeaderboardType;
+import com.douniu.mapper.GameDetailMapper;
+import com.douniu.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * 排行榜（Redis 有序集合）
+ *
+ * 总积分榜与用户积分同步增减，日榜、周榜按结算时间累加盈利，成员为用户ID。
+ * 结算事务提交后在一次管道请求中更新全部榜单，Top N 和个人排名查询均为 O(log n)。
+ * Redis 数据丢失或与数据库不一致时，由定时任务从 MySQL 重建到临时键后整体替换，重建期间排行榜接口仍读取旧榜单。
+ * 重建期间结算的积分变化同时累加到正式键和临时键，替换后不会丢失；
+ * 只有在读取数据库与写入临时键之间提交的对局可能被重复计数，由下一次重建修正。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeaderboardService {
+
+    // 重建总积分榜时每批读取的用户数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final String REBUILD_KEY_SUFFIX = ":rebuilding";
+
+    private final StringRedisTemplate redisTemplate;
+    private final UserMapper userMapper;
+    private final GameDetailMapper gameDetailMapper;
+    private final UserService userService;
+
+    // 重建中：结算的积分变化同时写入临时键
+    private volatile boolean rebuilding;
+    // 重建期间有写入临时键失败，本次重建结果不完整，不替换正式键
+    private volatile boolean rebuildIncomplete;
+
+    /**
+     * 记录一局的积分变化（结算事务提交后更新，回滚时不更新）
+     */
+    public void recordSettlement(Collection<GameDetail> details) {
+        Map<Long, Integer> changes = new HashMap<>();
+        for (GameDetail detail : details) {
+            changes.merge(detail.getUserId(), detail.getScoreChange(), Integer::sum);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyChanges(changes);
+                }
+            });
+        } else {
+            applyChanges(changes);
+        }
+    }
+
+    private void applyChanges(Map<Long, Integer> changes) {
+        LocalDate today = LocalDate.now();
+        applyChanges(changes, today, false);
+        if (rebuilding && !applyChanges(changes, today, true)) {
+            rebuildIncomplete = true;
+        }
+    }
+
+    /**
+     * 在一次管道请求中把积分变化累加到全部榜单
+     * @param rebuild 是否写入重建中的临时键
+     * @return 是否写入成功
+     */
+    private boolean applyChanges(Map<Long, Integer> changes, LocalDate today, boolean rebuild) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (LeaderboardType type : LeaderboardType.values()) {
+                    byte[] key = bytes(rebuild ? rebuildKey(type, today) : type.key(today));
+                    for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                        connection.zSetCommands().zIncrBy(key, change.getValue(), bytes(String.valueOf(change.getKey())));
+                    }
+                    if (!rebuild && type.getRetention() != null) {
+                        connection.keyCommands().expire(key, type.getRetention().getSeconds());
+                    }
+                }
+                return null;
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("更新排行榜失败，等待定时重建 - 积分变化: {}", changes, e);
+            return false;
+        }
+    }
+
+    /**
+     * 排行榜前N名
+     * @return 每项包含 rank、userId、nickname、score
+     */
+    public List<Map<String, Object>> getTop(LeaderboardType type, int limit) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                .reverseRangeWithScores(type.key(LocalDate.now()), 0, limit - 1);
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (tuples == null || tuples.isEmpty()) {
+            return result;
+        }
+
+        List<Long> userIds = new ArrayList<>();
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            userIds.add(Long.valueOf(tuple.getValue()));
+        }
+        Map<Long, User> users = userService.getUsersByIds(userIds);
+
+        int rank = 1;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            Long userId = Long.valueOf(tuple.getValue());
+            User user = users.get(userId);
+            Map<String, Object> item = new HashMap<>();
+            item.put("rank", rank++);
+            item.put("userId", userId);
+            item.put("nickname", user != null ? user.getNickname() : null);
+            item.put("score", tuple.getScore() != null ? tuple.getScore().longValue() : 0);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 用户在排行榜中的排名（未上榜时 rank 为null）
+     */
+    public Map<String, Object> getRank(LeaderboardType type, Long userId) {
+        String key = type.key(LocalDate.now());
+        String member = String.valueOf(userId);
+        Long index = redisTemplate.opsForZSet().reverseRank(key, member);
+        Double score = redisTemplate.opsForZSet().score(key, member);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("userId", userId);
+        result.put("rank", index != null ? index + 1 : null);
+        result.put("score", score != null ? score.longValue() : 0);
+        return result;
+    }
+
+    /**
+     * 启动时总积分榜不存在则重建（首次上线或 Redis 数据丢失）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(LeaderboardType.BALANCE.key(LocalDate.now())))) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            log.error("重建排行榜失败", e);
+        }
+    }
+
+    /**
+     * 从 MySQL 重建全部排行榜（写入临时键后整体替换）
+     * 数据库中的值用 ZADD 覆盖临时键中已累加的结算，之后结算的积分变化继续累加，替换时一并生效
+     */
+    @Scheduled(cron = "${douniu.leaderboard.rebuild-cron:0 0 5 * * ?}")
+    public synchronized void rebuild() {
+        LocalDate today = LocalDate.now();
+        List<String> tempKeys = Arrays.stream(LeaderboardType.values()).map(type -> rebuildKey(type, today)).toList();
+        try {
+            // 清除上次失败遗留的临时键后再开始双写
+            redisTemplate.delete(tempKeys);
+            rebuildIncomplete = false;
+            rebuilding = true;
+            int total = rebuildBalance(today);
+            for (LeaderboardType type : List.of(LeaderboardType.DAILY, LeaderboardType.WEEKLY)) {
+                rebuildProfit(type, today);
+            }
+            log.info("排行榜重建完成 - 用户数: {}", total);
+        } catch (Exception e) {
+            log.error("重建排行榜失败", e);
+        } finally {
+            rebuilding = false;
+            redisTemplate.delete(tempKeys);
+        }
+    }
+
+    /**
+     * 总积分榜：按ID分批读取用户积分
+     * @return 用户数
+     */
+    private int rebuildBalance(LocalDate today) {
+        String temp = rebuildKey(LeaderboardType.BALANCE, today);
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(User::getId, User::getBalance)
+                    .gt(User::getId, lastId)
+                    .orderByAsc(User::getId)
+                    .last("LIMIT " + REBUILD_BATCH_SIZE);
+            List<User> users = userMapper.selectList(wrapper);
+            if (users.isEmpty()) {
+                break;
+            }
+            Map<Long, Integer> scores = new HashMap<>();
+            for (User user : users) {
+                scores.put(user.getId(), user.getBalance() != null ? user.getBalance() : 0);
+            }
+            addScores(temp, scores);
+            lastId = users.get(users.size() - 1).getId();
+            total += users.size();
+        }
+        replace(temp, LeaderboardType.BALANCE.key(today), LeaderboardType.BALANCE);
+        return total;
+    }
+
+    /**
+     * 日榜、周榜：统计当前周期内已结算对局的盈利
+     */
+    private void rebuildProfit(LeaderboardType type, LocalDate today) {
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Map<String, Object> row : gameDetailMapper.sumProfitByUser(
+                type.periodStart(today).atStartOfDay(), today.plusDays(1).atStartOfDay())) {
+            scores.put(((Number) row.get("userId")).longValue(), ((Number) row.get("profit")).intValue());
+        }
+        addScores(rebuildKey(type, today), scores);
+        replace(rebuildKey(type, today), type.key(today), type);
+    }
+
+    private void addScores(String key, Map<Long, Integer> scores) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<Long, Integer> score : scores.entrySet()) {
+                connection.zSetCommands().zAdd(bytes(key), score.getValue(), bytes(String.valueOf(score.getKey())));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 用临时键替换正式键（临时键为空时删除正式键）
+     */
+    private void replace(String temp, String key, LeaderboardType type) {
+        if (rebuildIncomplete) {
+            throw new RuntimeException("重建期间结算的积分变化未能写入临时键");
+        }
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(temp))) {
+            redisTemplate.rename(temp, key);
+            if (type != null && type.getRetention() != null) {
+                redisTemplate.expire(key, type.getRetention());
+            }
+        } else {
+            redisTemplate.delete(key);
+        }
+    }
+
+    private static String rebuildKey(LeaderboardType type, LocalDate today) {
+        return type.key(today) + REBUILD_KEY_SUFFIX;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -6,17 +6,23 @@ import com.douniu.entity.Room;
 import com.douniu.entity.RoomPlayer;
 import com.douniu.entity.User;
 import com.douniu.enums.GameStatus;
+import com.douniu.lobby.LobbyIndex;
+import com.douniu.lobby.RoomChangedEvent;
 import com.douniu.mapper.RoomMapper;
 import com.douniu.mapper.RoomPlayerMapper;
 import com.alibaba.fastjson2.JSON;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +31,8 @@ public class RoomService {
     private final RoomMapper roomMapper;
     private final RoomPlayerMapper roomPlayerMapper;
     private final UserService userService;
+    private final LobbyIndex lobbyIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 创建房间
@@ -61,6 +69,7 @@ public class RoomService {
         creatorPlayer.setIsDealer(1); // 创建者默认为庄家
         roomPlayerMapper.updateById(creatorPlayer);
 
+        eventPublisher.publishEvent(new RoomChangedEvent(room.getId()));
         return room;
     }
 
@@ -112,6 +121,7 @@ public class RoomService {
         roomPlayer.setTotalScore(0);
 
         roomPlayerMapper.insert(roomPlayer);
+        eventPublisher.publishEvent(new RoomChangedEvent(roomId));
         return roomPlayer;
     }
 
@@ -162,9 +172,11 @@ public class RoomService {
                 .orderByAsc(RoomPlayer::getSeatNumber);
         List<RoomPlayer> players = roomPlayerMapper.selectList(wrapper);
         
-        // 填充用户昵称和在线状态
+        // 填充用户昵称和在线状态（昵称一次批量查询）
+        Map<Long, User> users = userService.getUsersByIds(
+                players.stream().map(RoomPlayer::getUserId).collect(Collectors.toList()));
         for (RoomPlayer player : players) {
-            User user = userService.getUserById(player.getUserId());
+            User user = users.get(player.getUserId());
             if (user != null) {
                 player.setNickname(user.getNickname());
             }
@@ -181,6 +193,17 @@ public class RoomService {
         return players;
     }
 
+    /**
+     * 获取房间内所有玩家的房间积分（只查询 room_player，不填充昵称）
+     */
+    public Map<Long, Integer> getPlayerScores(Long roomId) {
+        LambdaQueryWrapper<RoomPlayer> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(RoomPlayer::getRoomId, roomId)
+                .select(RoomPlayer::getUserId, RoomPlayer::getTotalScore);
+        return roomPlayerMapper.selectList(wrapper).stream()
+                .collect(Collectors.toMap(RoomPlayer::getUserId, p -> p.getTotalScore() != null ? p.getTotalScore() : 0));
+    }
+
     /**
      * 设置管理员
      */
@@ -191,11 +214,6 @@ public class RoomService {
             throw new RuntimeException("房间不存在");
         }
 
-        // 检查操作者是否为当前管理员
-        if (!room.getAdminId().equals(adminId)) {
-            throw new RuntimeException("无权限");
-        }
-
         // 检查新管理员是否在房间中
         LambdaQueryWrapper<RoomPlayer> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(RoomPlayer::getRoomId, roomId)
@@ -204,8 +222,34 @@ public class RoomService {
             throw new RuntimeException("用户不在房间中");
         }
 
-        room.setAdminId(newAdminId);
-        roomMapper.updateById(room);
+        updateRoom(roomId, latest -> {
+            // 检查操作者是否为当前管理员（以最新读取的房间为准）
+            if (!latest.getAdminId().equals(adminId)) {
+                throw new RuntimeException("无权限");
+            }
+            latest.setAdminId(newAdminId);
+            return true;
+        });
+    }
+
+    /**
+     * 加锁读取最新的房间后修改（悲观锁）
+     * SELECT ... FOR UPDATE 持有行锁到事务结束，并发的结算、提前结束、设置管理员等在此排队，读取到的总是已提交的最新房间，不需要重试；
+     * 调用方没有事务时（如启动时取消对局）在本方法的事务内加锁和修改。
+     * 不加锁的开局仍按版本号更新，与这里的修改冲突时直接失败。
+     * @param change 在最新读取的房间上修改，返回false表示不需要修改
+     * @return 是否已修改；房间不存在或不需要修改时返回false，调用方只在返回true时发布房间变更事件
+     */
+    @Transactional
+    public boolean updateRoom(Long roomId, Predicate<Room> change) {
+        Room room = roomMapper.selectByIdForUpdate(roomId);
+        if (room == null || !change.test(room)) {
+            return false;
+        }
+        if (roomMapper.updateById(room) == 0) {
+            throw new RuntimeException("房间状态已变更，请重试");
+        }
+        return true;
     }
 
     /**
@@ -217,6 +261,7 @@ public class RoomService {
         wrapper.eq(RoomPlayer::getRoomId, roomId)
                 .eq(RoomPlayer::getUserId, userId);
         roomPlayerMapper.delete(wrapper);
+        eventPublisher.publishEvent(new RoomChangedEvent(roomId));
     }
 
     /**
@@ -227,33 +272,9 @@ public class RoomService {
     }
 
     /**
-     * 查询所有未开始或进行中的房间
+     * 查询所有未开始或进行中的房间（从大厅房间索引读取）
      */
     public List<Room> getAvailableRooms() {
-        LambdaQueryWrapper<Room> wrapper = new LambdaQueryWrapper<>();
-        // 查询状态为等待中(0)或游戏中(1)的房间
-        wrapper.in(Room::getStatus, GameStatus.WAITING.getCode(), GameStatus.GAMING.getCode())
-                .orderByDesc(Room::getCreatedAt);
-        List<Room> rooms = roomMapper.selectList(wrapper);
-        
-        // 填充创建者信息和玩家数量
-        for (Room room : rooms) {
-            // 填充创建者昵称
-            if (room.getCreatorId() != null) {
-                User creator = userService.getUserById(room.getCreatorId());
-                if (creator != null) {
-                    room.setCreatorNickname(creator.getNickname());
-                }
-            }
-            
-            // 填充当前玩家数量
-            LambdaQueryWrapper<RoomPlayer> playerWrapper = new LambdaQueryWrapper<>();
-            playerWrapper.eq(RoomPlayer::getRoomId, room.getId());
-            long count = roomPlayerMapper.selectCount(playerWrapper);
-            room.setPlayerCount((int) count);
-        }
-        
-        return rooms;
+        return lobbyIndex.getAvailableRooms();
     }
 }
-
@@ -0,0 +1,167 @@
+package com.douniu.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONWriter;
+import com.douniu.archive.RoundArchiveCodec;
+import com.douniu.archive.RoundArchiveService;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.GameRecord;
+import com.douniu.enums.CardType;
+import com.douniu.enums.ExportFormat;
+import com.douniu.mapper.GameRecordMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 对局历史导出
+ *
+ * 每行是一条对局详情（带所属对局的字段），没有详情的对局（如已取消）输出一行空详情。
+ * 先输出归档文件中的对局，再通过数据库游标流式输出热表中的对局，内存占用与对局数量无关。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoundExportService {
+
+    private static final String[] COLUMNS = {
+            "gameRecordId", "roomId", "roundNumber", "dealerId", "status", "startTime", "endTime",
+            "userId", "seatNumber", "betAmount", "cards", "cardType", "cardTypeName", "strength", "scoreChange", "isWinner"
+    };
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final GameRecordMapper gameRecordMapper;
+    private final RoundArchiveService roundArchiveService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 导出对局历史
+     * @param roomId 房间ID，为空时不限房间
+     * @param from 开始日期（含，按对局开始时间），为空时不限
+     * @param to 结束日期（含），为空时不限
+     */
+    public void export(Long roomId, LocalDate from, LocalDate to, ExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == ExportFormat.CSV) {
+            writer.write('\uFEFF'); // BOM，Excel 按UTF-8打开
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\n");
+        }
+
+        // 已归档的对局（逐个文件读取）
+        roundArchiveService.forEachArchivedPartition(roomId, from, to, partition -> writePartition(partition, format, writer));
+
+        // 热表中的对局（数据库游标，需要在事务中保持连接）
+        LocalDateTime startFrom = from != null ? from.atStartOfDay() : null;
+        LocalDateTime startTo = to != null ? to.plusDays(1).atStartOfDay() : null;
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Cursor<Map<String, Object>> cursor = gameRecordMapper.streamRoundDetails(roomId, startFrom, startTo)) {
+                for (Map<String, Object> row : cursor) {
+                    writeRow(normalize(row), format, writer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private void writePartition(RoundArchiveCodec.Partition partition, ExportFormat format, Writer writer) {
+        Map<Long, List<GameDetail>> detailsByRecord = partition.getDetails().stream()
+                .sorted(Comparator.comparing(GameDetail::getSeatNumber))
+                .collect(Collectors.groupingBy(GameDetail::getGameRecordId));
+        try {
+            for (GameRecord record : partition.getRecords()) {
+                List<GameDetail> details = detailsByRecord.getOrDefault(record.getId(), List.of());
+                if (details.isEmpty()) {
+                    writeRow(toRow(record, null), format, writer);
+                }
+                for (GameDetail detail : details) {
+                    writeRow(toRow(record, detail), format, writer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> toRow(GameRecord record, GameDetail detail) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("gameRecordId", record.getId());
+        row.put("roomId", record.getRoomId());
+        row.put("roundNumber", record.getRoundNumber());
+        row.put("dealerId", record.getDealerId());
+        row.put("status", record.getStatus());
+        row.put("startTime", record.getStartTime());
+        row.put("endTime", record.getEndTime());
+        if (detail != null) {
+            row.put("userId", detail.getUserId());
+            row.put("seatNumber", detail.getSeatNumber());
+            row.put("betAmount", detail.getBetAmount());
+            row.put("cards", detail.getCards());
+            row.put("cardType", detail.getCardTypeCode());
+            row.put("strength", detail.getStrength());
+            row.put("scoreChange", detail.getScoreChange());
+            row.put("isWinner", detail.getIsWinner());
+        }
+        return normalize(row);
+    }
+
+    /**
+     * 按列顺序整理一行：补齐缺失列、格式化时间、解析牌型名称
+     */
+    private Map<String, Object> normalize(Map<String, Object> row) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String column : COLUMNS) {
+            Object value = row.get(column);
+            if (value instanceof LocalDateTime) {
+                value = ((LocalDateTime) value).format(TIME_FORMATTER);
+            }
+            result.put(column, value);
+        }
+        Object cardTypeCode = row.get("cardType");
+        CardType cardType = cardTypeCode != null ? CardType.fromCode(((Number) cardTypeCode).intValue()) : null;
+        result.put("cardTypeName", cardType != null ? cardType.getName() : null);
+        return result;
+    }
+
+    private void writeRow(Map<String, Object> row, ExportFormat format, Writer writer) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            writer.write(JSON.toJSONString(row, JSONWriter.Feature.WriteNulls));
+        } else {
+            StringBuilder line = new StringBuilder();
+            for (Object value : row.values()) {
+                if (line.length() > 0) {
+                    line.append(',');
+                }
+                line.append(csvValue(value));
+            }
+            writer.write(line.toString());
+        }
+        writer.write("\n");
+    }
+
+    /**
+     * CSV 字段转义：包含逗号、引号或换行时用引号包裹，内部引号加倍
+     */
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
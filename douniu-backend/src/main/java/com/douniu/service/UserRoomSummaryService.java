@@ -0,0 +1,78 @@
+package com.douniu.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.douniu.archive.RoundArchiveService;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.RoomArchive;
+import com.douniu.mapper.RoomArchiveMapper;
+import com.douniu.mapper.UserRoomSummaryMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 用户房间战绩汇总
+ * 结算时按本局详情增量累加，"我的房间"直接按 (user_id, room_id) 读取，不再扫描对局详情
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserRoomSummaryService implements ApplicationRunner {
+
+    // 每批累加的详情条数
+    private static final int BATCH_SIZE = 500;
+
+    private final UserRoomSummaryMapper userRoomSummaryMapper;
+    private final RoomArchiveMapper roomArchiveMapper;
+    private final RoundArchiveService roundArchiveService;
+
+    @Value("${douniu.summary.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    /**
+     * 累加一局的结算结果（在结算事务中调用）
+     */
+    public void recordSettlement(Long roomId, Collection<GameDetail> details) {
+        if (!details.isEmpty()) {
+            userRoomSummaryMapper.accumulate(roomId, details);
+        }
+    }
+
+    /**
+     * 从历史对局重建战绩汇总（热表 + 归档文件）
+     */
+    @Transactional
+    public void rebuild() {
+        userRoomSummaryMapper.deleteAll();
+        int rows = userRoomSummaryMapper.rebuildFromHistory();
+
+        LambdaQueryWrapper<RoomArchive> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(RoomArchive::getRoomId).groupBy(RoomArchive::getRoomId);
+        Set<Long> archivedRoomIds = roomArchiveMapper.selectList(wrapper).stream()
+                .map(RoomArchive::getRoomId)
+                .collect(Collectors.toSet());
+        for (Long roomId : archivedRoomIds) {
+            List<GameDetail> details = roundArchiveService.getRoomArchive(roomId).getDetails();
+            for (int from = 0; from < details.size(); from += BATCH_SIZE) {
+                userRoomSummaryMapper.accumulate(roomId, details.subList(from, Math.min(from + BATCH_SIZE, details.size())));
+            }
+        }
+        log.info("战绩汇总重建完成 - 热表汇总行数: {}, 归档房间数: {}", rows, archivedRoomIds.size());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+}
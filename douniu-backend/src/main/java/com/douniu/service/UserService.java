@@ -1,6 +1,8 @@
 package com.douniu.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.douniu.cache.UserProfileCache;
 import com.douniu.dto.LoginRequest;
 import com.douniu.dto.RegisterRequest;
 import com.douniu.entity.User;
@@ -10,11 +12,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserMapper userMapper;
+    private final UserProfileCache userProfileCache;
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     /**
@@ -68,21 +78,63 @@ public class UserService {
     }
 
     /**
-     * 根据ID获取用户
+     * 根据ID获取用户（完整信息，包含积分，直接查询数据库）
      */
     public User getUserById(Long userId) {
         return userMapper.selectById(userId);
     }
 
     /**
-     * 更新用户积分
+     * 获取用户展示信息（ID、昵称、头像），优先读取本地缓存
      */
-    public void updateBalance(Long userId, Integer scoreChange) {
-        User user = userMapper.selectById(userId);
-        if (user != null) {
-            user.setBalance(user.getBalance() + scoreChange);
-            userMapper.updateById(user);
+    public User getUserProfile(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return getUsersByIds(List.of(userId)).get(userId);
+    }
+
+    /**
+     * 批量获取用户展示信息（ID、昵称、头像），不包含密码和积分
+     * 优先读取本地缓存，未命中的用户一次IN查询补齐
+     * @return 用户ID -> 用户
+     */
+    public Map<Long, User> getUsersByIds(Collection<Long> userIds) {
+        Map<Long, User> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long userId : userIds) {
+            if (userId == null || result.containsKey(userId)) {
+                continue;
+            }
+            User cached = userProfileCache.get(userId);
+            if (cached != null) {
+                result.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
         }
+
+        LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(User::getId, User::getNickname, User::getAvatar)
+                .in(User::getId, missing);
+        for (User user : userMapper.selectList(wrapper)) {
+            userProfileCache.put(user);
+            result.put(user.getId(), user);
+        }
+        return result;
+    }
+
+    /**
+     * 更新用户积分（原子增减，避免先查后写覆盖并发修改）
+     */
+    public void updateBalance(Long userId, Integer scoreChange) {
+        LambdaUpdateWrapper<User> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.eq(User::getId, userId)
+                .setSql("balance = balance + " + scoreChange);
+        userMapper.update(null, wrapper);
     }
 }
 
@@ -0,0 +1,243 @@
+package com.douniu.service;
+
+import com.douniu.archive.RoundArchiveService;
+import com.douniu.dto.UserStats;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.GameRecord;
+import com.douniu.mapper.GameDetailMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 用户统计计数器（Redis 哈希，每个用户一个键）
+ *
+ * 结算事务提交后按本局详情累加局数、胜局、牌型分布、坐庄/闲家盈利，统计接口直接读取哈希。
+ * 对账任务从历史对局（热表 + 归档文件）重建到临时键，完成后逐个用户用临时键替换正式键，重建期间统计接口仍读取旧值。
+ * 重建期间结算的对局同时累加到正式键和临时键，替换后不会丢失；
+ * 只有在对账开始与热表快照建立之间提交的对局可能被重复计数，由下一次对账修正。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserStatsService {
+
+    private static final String KEY_PREFIX = "douniu:user-stats:";
+    private static final String REBUILD_KEY_PREFIX = "douniu:user-stats-rebuilding:";
+    // 对账时每累计多少个用户写入一次 Redis
+    private static final int REBUILD_FLUSH_USERS = 500;
+    // 批量删除、替换键时每批的键数
+    private static final int REDIS_BATCH_SIZE = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final GameDetailMapper gameDetailMapper;
+    private final RoundArchiveService roundArchiveService;
+    private final TransactionTemplate transactionTemplate;
+
+    // 对账重建中：结算增量同时写入临时键
+    private volatile boolean rebuilding;
+    // 重建期间有写入临时键失败，本次重建结果不完整，不替换正式键
+    private volatile boolean rebuildIncomplete;
+
+    /**
+     * 记录一局的统计（结算事务提交后更新，回滚时不更新）
+     */
+    public void recordSettlement(Long dealerId, Collection<GameDetail> details) {
+        Map<Long, Map<String, Long>> increments = new HashMap<>();
+        for (GameDetail detail : details) {
+            merge(increments, detail.getUserId(), UserStats.increments(detail, detail.getUserId().equals(dealerId)));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applySettlement(increments);
+                }
+            });
+        } else {
+            applySettlement(increments);
+        }
+    }
+
+    private void applySettlement(Map<Long, Map<String, Long>> increments) {
+        applyIncrements(KEY_PREFIX, increments);
+        if (rebuilding && !applyIncrements(REBUILD_KEY_PREFIX, increments)) {
+            rebuildIncomplete = true;
+        }
+    }
+
+    private void writeRebuild(Map<Long, Map<String, Long>> increments) {
+        if (!applyIncrements(REBUILD_KEY_PREFIX, increments)) {
+            throw new RuntimeException("写入重建中的用户统计失败");
+        }
+    }
+
+    /**
+     * 读取用户统计
+     */
+    public UserStats getStats(Long userId) {
+        Map<Object, Object> hash = redisTemplate.opsForHash().entries(KEY_PREFIX + userId);
+        Map<String, Long> counters = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : hash.entrySet()) {
+            counters.put(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()));
+        }
+        return UserStats.fromCounters(userId, counters);
+    }
+
+    /**
+     * 对账：从历史对局重建到临时键，再逐个用户替换正式键
+     */
+    @Scheduled(cron = "${douniu.user-stats.reconcile-cron:0 30 5 * * ?}")
+    public synchronized void reconcile() {
+        try {
+            // 清除上次失败遗留的临时键后再开始双写
+            deleteKeys(scanKeys(REBUILD_KEY_PREFIX));
+            rebuildIncomplete = false;
+            rebuilding = true;
+
+            // 热表：按用户分组的统计结果（按用户ID排序，数据库游标流式读取）
+            int[] users = {0};
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Map<String, Long>> pending = new HashMap<>();
+                try (Cursor<Map<String, Object>> cursor = gameDetailMapper.streamUserStats()) {
+                    for (Map<String, Object> row : cursor) {
+                        Long userId = ((Number) row.get("userId")).longValue();
+                        if (!pending.containsKey(userId) && pending.size() >= REBUILD_FLUSH_USERS) {
+                            writeRebuild(pending);
+                            pending.clear();
+                        }
+                        if (!pending.containsKey(userId)) {
+                            users[0]++;
+                        }
+                        merge(pending, userId, rowIncrements(row));
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("读取对局统计失败: " + e.getMessage(), e);
+                }
+                writeRebuild(pending);
+            });
+
+            // 归档文件：逐个文件累加
+            roundArchiveService.forEachArchivedPartition(null, null, null, partition -> {
+                Map<Long, Long> dealers = partition.getRecords().stream()
+                        .collect(Collectors.toMap(GameRecord::getId, GameRecord::getDealerId));
+                Map<Long, Map<String, Long>> increments = new HashMap<>();
+                for (GameDetail detail : partition.getDetails()) {
+                    boolean dealer = detail.getUserId().equals(dealers.get(detail.getGameRecordId()));
+                    merge(increments, detail.getUserId(), UserStats.increments(detail, dealer));
+                }
+                writeRebuild(increments);
+            });
+
+            if (rebuildIncomplete) {
+                throw new RuntimeException("重建期间结算的对局未能写入临时键");
+            }
+            // 先取出全部临时键再替换：替换后该用户的结算双写会重新创建临时键，不能再被替换
+            Set<String> rebuilt = scanKeys(REBUILD_KEY_PREFIX);
+            replaceAll(rebuilt);
+            log.info("用户统计对账完成 - 替换计数器: {}, 热表用户数: {}", rebuilt.size(), users[0]);
+        } catch (Exception e) {
+            log.error("用户统计对账失败", e);
+        } finally {
+            rebuilding = false;
+            deleteKeys(scanKeys(REBUILD_KEY_PREFIX));
+        }
+    }
+
+    /**
+     * 一行分组统计结果对应的计数器增量
+     */
+    private Map<String, Long> rowIncrements(Map<String, Object> row) {
+        Function<String, Long> number = column -> row.get(column) != null ? ((Number) row.get(column)).longValue() : 0L;
+        long rounds = number.apply("rounds");
+        boolean dealer = number.apply("asDealer") == 1;
+        Map<String, Long> increments = new HashMap<>();
+        increments.put(UserStats.ROUNDS, rounds);
+        increments.put(UserStats.WINS, number.apply("wins"));
+        increments.put(UserStats.DEALER_ROUNDS, dealer ? rounds : 0L);
+        increments.put(dealer ? UserStats.DEALER_PROFIT : UserStats.PLAYER_PROFIT, number.apply("profit"));
+        if (row.get("cardType") != null) {
+            increments.put(UserStats.CARD_TYPE_PREFIX + number.apply("cardType"), rounds);
+        }
+        return increments;
+    }
+
+    private void merge(Map<Long, Map<String, Long>> target, Long userId, Map<String, Long> increments) {
+        Map<String, Long> counters = target.computeIfAbsent(userId, k -> new HashMap<>());
+        increments.forEach((field, value) -> counters.merge(field, value, Long::sum));
+    }
+
+    /**
+     * 在一次管道请求中累加多个用户的计数器（跳过为0的增量）
+     * @return 是否写入成功
+     */
+    private boolean applyIncrements(String keyPrefix, Map<Long, Map<String, Long>> increments) {
+        if (increments.isEmpty()) {
+            return true;
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<Long, Map<String, Long>> user : increments.entrySet()) {
+                    byte[] key = (keyPrefix + user.getKey()).getBytes(StandardCharsets.UTF_8);
+                    for (Map.Entry<String, Long> field : user.getValue().entrySet()) {
+                        if (field.getValue() != 0) {
+                            connection.hashCommands().hIncrBy(key, field.getKey().getBytes(StandardCharsets.UTF_8), field.getValue());
+                        }
+                    }
+                }
+                return null;
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("更新用户统计失败，等待对账修正 - 用户数: {}", increments.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 逐个用户用临时键替换正式键（RENAME 为原子操作，每批一次管道请求）
+     */
+    private void replaceAll(Set<String> tempKeys) {
+        List<String> keys = new ArrayList<>(tempKeys);
+        for (int from = 0; from < keys.size(); from += REDIS_BATCH_SIZE) {
+            List<String> batch = keys.subList(from, Math.min(from + REDIS_BATCH_SIZE, keys.size()));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String temp : batch) {
+                    String key = KEY_PREFIX + temp.substring(REBUILD_KEY_PREFIX.length());
+                    connection.keyCommands().rename(temp.getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+        }
+    }
+
+    private Set<String> scanKeys(String keyPrefix) {
+        Set<String> keys = new LinkedHashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(REDIS_BATCH_SIZE).build();
+        try (org.springframework.data.redis.core.Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        return keys;
+    }
+
+    private void deleteKeys(Set<String> keySet) {
+        List<String> keys = new ArrayList<>(keySet);
+        for (int from = 0; from < keys.size(); from += REDIS_BATCH_SIZE) {
+            redisTemplate.delete(keys.subList(from, Math.min(from + REDIS_BATCH_SIZE, keys.size())));
+        }
+    }
+}
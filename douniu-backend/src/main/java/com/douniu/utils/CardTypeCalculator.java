@@ -262,6 +262,25 @@ public class CardTypeCalculator {
         return 0;
     }
 
+    /**
+     * 计算牌力值（用于持久化和索引排序）
+     * 编码：牌型编码 × 64 + 最大单牌值（点数 × 4 + 花色大小，黑桃最大）
+     * 同一副牌中不会出现两张相同的牌，因此同一局内牌力值的大小关系与 compareCardType 一致
+     * @param type 牌型
+     * @param cards 5张牌
+     * @return 牌力值，越大越强
+     */
+    public static int calculateStrength(CardType type, List<Card> cards) {
+        int topCard = 0;
+        if (cards != null) {
+            for (Card card : cards) {
+                int cardValue = card.getRank() * 4 + (3 - getSuitValue(card.getSuit()));
+                topCard = Math.max(topCard, cardValue);
+            }
+        }
+        return type.getCode() * 64 + topCard;
+    }
+
     /**
      * 比较两副牌的大小（当牌型相同时使用）
      * 规则：按从大到小的顺序比较每张牌，先比点数，点数相同再比花色（黑桃>红桃>梅花>方块）
@@ -0,0 +1,99 @@
+package com.douniu.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 紧凑消息编码（客户端按连接协商启用，默认仍为JSON）
+ *
+ * 按固定的字段字典把常用字段名替换为短别名（A、B、…、Z、AA、…，真实字段名都以小写字母或数字开头，不会冲突），
+ * 字典外的字段名（如以用户ID为键的映射）原样保留；cards / hiddenCard 下的牌对象压缩为一个整数 suit * 16 + rank。
+ * 字典只能在末尾追加字段，调整顺序或删除时必须升级 SCHEMA_VERSION，客户端通过 /message-schema 获取字典。
+ */
+public final class CompactMessageCodec {
+
+    public static final int SCHEMA_VERSION = 1;
+
+    // 客户端在 STOMP CONNECT 帧中通过该头部申请紧凑编码
+    public static final String FORMAT_HEADER = "x-message-format";
+    public static final String FORMAT = "compact-v" + SCHEMA_VERSION;
+    public static final MimeType CONTENT_TYPE = new MimeType("application", "vnd.douniu.compact+json");
+
+    public static final List<String> KEYS = List.of(
+            "code", "message", "data", "type", "version", "deltas",
+            "id", "userId", "roomId", "gameRecordId", "dealerId", "adminId", "creatorId",
+            "room", "player", "players", "playerIds", "scores", "details", "gameRecord",
+            "cards", "hiddenCard", "backCounts", "self", "suit", "rank", "value",
+            "nickname", "seatNumber", "isDealer", "isOnline", "isReady", "totalScore", "joinedAt",
+            "roomCode", "maxRounds", "currentRound", "enabledCardTypes", "status", "createdAt", "updatedAt",
+            "creatorNickname", "playerCount", "roundNumber", "startTime", "endTime",
+            "betAmount", "cardType", "cardTypeCode", "strength", "scoreChange", "isWinner", "multiplier", "cardGroups",
+            "countdown", "readyCount", "roomFinished", "autoRevealed", "displayTime", "dealerNickname"
+    );
+
+    // 值为牌或牌列表的字段
+    public static final Set<String> CARD_KEYS = Set.of("cards", "hiddenCard");
+
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.size(); i++) {
+            ALIASES.put(KEYS.get(i), alias(i));
+        }
+    }
+
+    private CompactMessageCodec() {
+    }
+
+    /**
+     * 把JSON消息体转换为紧凑编码
+     */
+    public static byte[] encode(ObjectMapper objectMapper, byte[] json) throws IOException {
+        return objectMapper.writeValueAsBytes(compact(objectMapper.readTree(json), false));
+    }
+
+    /**
+     * 字典序号对应的别名（0 -> A，25 -> Z，26 -> AA）
+     */
+    public static String alias(int index) {
+        StringBuilder alias = new StringBuilder();
+        int n = index + 1;
+        while (n > 0) {
+            n--;
+            alias.insert(0, (char) ('A' + n % 26));
+            n /= 26;
+        }
+        return alias.toString();
+    }
+
+    private static JsonNode compact(JsonNode node, boolean cardValue) {
+        if (node.isObject()) {
+            if (cardValue && node.has("suit") && node.has("rank")) {
+                return IntNode.valueOf(node.get("suit").asInt() * 16 + node.get("rank").asInt());
+            }
+            ObjectNode result = ((ObjectNode) node).objectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                result.set(ALIASES.getOrDefault(field.getKey(), field.getKey()),
+                        compact(field.getValue(), CARD_KEYS.contains(field.getKey())));
+            }
+            return result;
+        }
+        if (node.isArray()) {
+            ArrayNode result = ((ArrayNode) node).arrayNode(node.size());
+            for (JsonNode element : node) {
+                result.add(compact(element, cardValue));
+            }
+            return result;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,93 @@
+package com.douniu.websocket;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.utils.CardTypeCalculator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发牌消息模板
+ *
+ * 所有玩家共享的部分（对局ID、每个玩家的背面牌数）只序列化一次，
+ * 发给每个玩家的消息只在模板中拼入该玩家自己的手牌（4张正面 + 1张背面），不再为每个玩家重建全部玩家的牌。
+ *
+ * 单个玩家的消息格式：{"code":200,"message":"success","data":{"gameRecordId":..,"backCounts":{userId:5,..},"self":{"userId":..,"cards":[..],"hiddenCard":{..}}}}
+ */
+public final class DealPayloads {
+
+    // 每名玩家的背面牌数
+    public static final int BACK_COUNT = 5;
+
+    private static final String SELF_PLACEHOLDER = "__SELF_HAND__";
+
+    private final ObjectMapper objectMapper;
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private DealPayloads(ObjectMapper objectMapper, byte[] prefix, byte[] suffix) {
+        this.objectMapper = objectMapper;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * 预先序列化共享模板
+     */
+    public static DealPayloads prepare(ObjectMapper objectMapper, Long gameRecordId, Collection<Long> playerIds) {
+        Map<Long, Integer> backCounts = new LinkedHashMap<>();
+        for (Long playerId : playerIds) {
+            backCounts.put(playerId, BACK_COUNT);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("gameRecordId", gameRecordId);
+        data.put("backCounts", backCounts);
+        data.put("self", SELF_PLACEHOLDER);
+
+        String template;
+        try {
+            template = objectMapper.writeValueAsString(ApiResponse.success(data));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化发牌消息失败: " + e.getMessage(), e);
+        }
+        String placeholder = "\"" + SELF_PLACEHOLDER + "\"";
+        int index = template.indexOf(placeholder);
+        return new DealPayloads(objectMapper,
+                template.substring(0, index).getBytes(StandardCharsets.UTF_8),
+                template.substring(index + placeholder.length()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 拼入玩家自己的手牌，生成发给该玩家的消息
+     */
+    public byte[] forPlayer(Long userId, List<CardTypeCalculator.Card> hand) {
+        byte[] selfJson;
+        try {
+            selfJson = objectMapper.writeValueAsBytes(selfHand(userId, hand));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化发牌消息失败: " + e.getMessage(), e);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(prefix.length + selfJson.length + suffix.length);
+        out.writeBytes(prefix);
+        out.writeBytes(selfJson);
+        out.writeBytes(suffix);
+        return out.toByteArray();
+    }
+
+    /**
+     * 玩家自己的手牌：4张正面 + 1张背面
+     */
+    public static Map<String, Object> selfHand(Long userId, List<CardTypeCalculator.Card> hand) {
+        Map<String, Object> self = new LinkedHashMap<>();
+        self.put("userId", userId);
+        self.put("cards", hand.subList(0, 4)); // 前4张正面
+        self.put("hiddenCard", hand.get(4)); // 第5张背面
+        return self;
+    }
+}
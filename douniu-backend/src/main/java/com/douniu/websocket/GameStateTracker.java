@@ -0,0 +1,146 @@
+package com.douniu.websocket;
+
+import com.douniu.enums.CardType;
+import com.douniu.service.GameService;
+import com.douniu.utils.CardTypeCalculator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 房间当前一局的对局快照（用于刷新页面、中途加入和断线重连时拉取）
+ *
+ * 投注、牌面、开牌状态、启用的牌型和对局记录直接读取 GameService 的内存状态（包括启动时从事件日志恢复的对局），不查询数据库，
+ * 本类只记录由消息处理器驱动的倒计时：准备倒计时、开牌倒计时、展示牌。结束超过一段时间的倒计时定期清理。
+ * 快照按请求的用户过滤，只包含该用户自己的手牌，其他玩家的牌只有开牌后才出现在已开牌列表中（与开牌广播的内容相同）。
+ */
+@Component
+@RequiredArgsConstructor
+public class GameStateTracker {
+
+    public static final String WAITING = "waiting";
+    public static final String BETTING = "betting";
+    public static final String REVEALING = "revealing";
+    public static final String DISPLAYING = "displaying";
+
+    // 倒计时结束后保留的时间：结算广播前拉取快照仍能看到展示阶段
+    private static final long EXPIRED_RETAIN_MS = 60000;
+
+    private final GameService gameService;
+
+    // 房间当前阶段的倒计时：roomId -> countdown
+    private final Map<Long, PhaseCountdown> countdowns = new ConcurrentHashMap<>();
+
+    /**
+     * 阶段倒计时
+     * @param gameRecordId 所属对局，准备倒计时为null；不属于当前对局的倒计时不再生效
+     * @param deadline 倒计时结束时间（毫秒）
+     */
+    record PhaseCountdown(Long gameRecordId, String phase, long deadline) {
+    }
+
+    /**
+     * 准备倒计时开始
+     */
+    public void readyCountdownStarted(Long roomId, int seconds) {
+        countdowns.put(roomId, new PhaseCountdown(null, WAITING, deadline(seconds)));
+    }
+
+    /**
+     * 开牌倒计时开始
+     */
+    public void revealCountdownStarted(Long roomId, Long gameRecordId, int seconds) {
+        countdowns.put(roomId, new PhaseCountdown(gameRecordId, REVEALING, deadline(seconds)));
+    }
+
+    /**
+     * 全部开牌，开始展示牌
+     */
+    public void displayStarted(Long roomId, Long gameRecordId, int seconds) {
+        countdowns.put(roomId, new PhaseCountdown(gameRecordId, DISPLAYING, deadline(seconds)));
+    }
+
+    /**
+     * 按用户过滤的对局快照
+     */
+    public Map<String, Object> getSnapshot(Long roomId, Long userId) {
+        return buildSnapshot(roomId, userId, gameService.getCurrentRound(roomId), countdowns.get(roomId));
+    }
+
+    /**
+     * 清理已结束的倒计时（房间解散或长时间没有开局后不再保留）
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long deadline = System.currentTimeMillis() - EXPIRED_RETAIN_MS;
+        countdowns.values().removeIf(countdown -> countdown.deadline() < deadline);
+    }
+
+    static Map<String, Object> buildSnapshot(Long roomId, Long userId, GameService.CurrentRound round,
+                                             PhaseCountdown countdown) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("roomId", roomId);
+        if (round == null) {
+            data.put("phase", WAITING);
+            data.put("countdown", countdown != null && countdown.gameRecordId() == null ? remainingSeconds(countdown.deadline()) : 0);
+            return data;
+        }
+
+        Long gameRecordId = round.record().getId();
+        PhaseCountdown current = countdown != null && gameRecordId.equals(countdown.gameRecordId()) ? countdown : null;
+        Map<Long, List<CardTypeCalculator.Card>> cards = round.cards();
+        data.put("phase", cards == null ? BETTING : current != null ? current.phase() : REVEALING);
+        data.put("countdown", current != null ? remainingSeconds(current.deadline()) : 0);
+        data.put("gameRecord", round.record());
+        data.put("bets", round.bets());
+
+        List<Map<String, Object>> reveals = new ArrayList<>();
+        if (cards != null) {
+            round.revealed().stream().sorted().filter(cards::containsKey)
+                    .forEach(playerId -> reveals.add(revealData(playerId, cards.get(playerId), round.enabledTypes())));
+
+            Map<Long, Integer> backCounts = new LinkedHashMap<>();
+            for (Long playerId : cards.keySet()) {
+                backCounts.put(playerId, DealPayloads.BACK_COUNT);
+            }
+            Map<String, Object> deal = new HashMap<>();
+            deal.put("gameRecordId", gameRecordId);
+            deal.put("backCounts", backCounts);
+            List<CardTypeCalculator.Card> hand = cards.get(userId);
+            deal.put("self", hand != null ? DealPayloads.selfHand(userId, hand) : null);
+            data.put("deal", deal);
+        }
+        data.put("reveals", reveals);
+        return data;
+    }
+
+    /**
+     * 开牌数据：5张牌、牌型信息和分组信息（开牌广播和快照共用）
+     */
+    public static Map<String, Object> revealData(Long userId, List<CardTypeCalculator.Card> cards, Set<String> enabledTypes) {
+        CardType cardType = CardTypeCalculator.calculateCardType(cards, enabledTypes);
+        Map<String, Object> revealData = new HashMap<>();
+        revealData.put("userId", userId);
+        revealData.put("cards", cards); // 完整的5张牌
+        revealData.put("cardType", cardType.getName()); // 牌型名称
+        revealData.put("multiplier", cardType.getMultiplier()); // 赔率
+        revealData.put("cardGroups", CardTypeCalculator.getCardGroups(cards)); // 牌型分组（group1: 3张, group2: 2张）
+        return revealData;
+    }
+
+    private static long deadline(int seconds) {
+        return System.currentTimeMillis() + seconds * 1000L;
+    }
+
+    private static int remainingSeconds(long deadline) {
+        return (int) Math.max(0, (deadline - System.currentTimeMillis() + 999) / 1000);
+    }
+}
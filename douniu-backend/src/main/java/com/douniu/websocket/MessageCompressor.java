@@ -0,0 +1,207 @@
+package com.douniu.websocket;
+
+import com.douniu.cache.TtlLruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+
+/**
+ * WebSocket消息压缩（按消息大小阈值、按传输方式启用）
+ *
+ * 客户端在 CONNECT 帧中带上 x-accept-encoding: deflate 且所用的 SockJS 传输方式在配置列表中时，
+ * 不小于阈值的下行消息用 deflate（zlib格式）压缩后 Base64 编码（SockJS 只能传输文本帧），并带上 content-encoding: deflate 头部；
+ * 倒计时等小消息不压缩，压缩后没有变小的消息按原样发送。
+ * 每条广播的消息体只压缩一次（按数组实例缓存），定期输出压缩率和压缩耗时。
+ */
+@Slf4j
+@Component
+public class MessageCompressor {
+
+    public static final String ACCEPT_ENCODING_HEADER = "x-accept-encoding";
+    public static final String CONTENT_ENCODING_HEADER = "content-encoding";
+    public static final String DEFLATE = "deflate";
+
+    // 握手时记录的 SockJS 传输方式（websocket、xhr_streaming、xhr 等）
+    public static final String TRANSPORT_ATTRIBUTE = "transport";
+
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+    private final Set<String> transports;
+
+    // 启用压缩的会话
+    private final Map<String, Boolean> compressSessions = new ConcurrentHashMap<>();
+
+    // 原始消息体（按数组实例） -> 压缩后的消息体，压缩没有收益时为原数组
+    private final TtlLruCache<byte[], byte[]> compressed = new TtlLruCache<>(256, 10_000);
+
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private final AtomicLong belowThreshold = new AtomicLong();
+    private final AtomicLong noGain = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong compressRuns = new AtomicLong();
+
+    public MessageCompressor(@Value("${douniu.ws-compression.enabled:true}") boolean enabled,
+                             @Value("${douniu.ws-compression.min-bytes:512}") int minBytes,
+                             @Value("${douniu.ws-compression.level:6}") int level,
+                             @Value("${douniu.ws-compression.transports:websocket,xhr_streaming,xhr}") String transports) {
+        this.enabled = enabled;
+        this.minBytes = minBytes;
+        this.level = level;
+        this.transports = Arrays.stream(transports.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 握手拦截：记录会话使用的 SockJS 传输方式（请求路径的最后一段）
+     */
+    public HandshakeInterceptor getHandshakeInterceptor() {
+        return new HandshakeInterceptor() {
+            @Override
+            public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                           WebSocketHandler wsHandler, Map<String, Object> attributes) {
+                String path = request.getURI().getPath();
+                attributes.put(TRANSPORT_ATTRIBUTE, path.substring(path.lastIndexOf('/') + 1));
+                return true;
+            }
+
+            @Override
+            public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Exception exception) {
+            }
+        };
+    }
+
+    /**
+     * 入站拦截：CONNECT 时根据客户端声明和传输方式决定是否压缩，DISCONNECT 时清理
+     */
+    public ChannelInterceptor getInboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null || accessor.getSessionId() == null) {
+                    return message;
+                }
+                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String acceptEncoding = accessor.getFirstNativeHeader(ACCEPT_ENCODING_HEADER);
+                    Map<String, Object> attributes = accessor.getSessionAttributes();
+                    Object transport = attributes != null ? attributes.get(TRANSPORT_ATTRIBUTE) : null;
+                    if (enabled && acceptEncoding != null && acceptEncoding.contains(DEFLATE) && transports.contains(transport)) {
+                        compressSessions.put(accessor.getSessionId(), Boolean.TRUE);
+                    }
+                } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+                    compressSessions.remove(accessor.getSessionId());
+                }
+                return message;
+            }
+        };
+    }
+
+    /**
+     * 出站拦截：压缩启用了压缩的会话中不小于阈值的消息
+     */
+    public ChannelInterceptor getOutboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+                if (accessor == null || accessor.getMessageType() != SimpMessageType.MESSAGE
+                        || accessor.getSessionId() == null || !compressSessions.containsKey(accessor.getSessionId())
+                        || !(message.getPayload() instanceof byte[] payload)) {
+                    return message;
+                }
+                if (payload.length < minBytes) {
+                    belowThreshold.incrementAndGet();
+                    return message;
+                }
+
+                byte[] body = compressed.get(payload);
+                if (body == null) {
+                    long start = System.nanoTime();
+                    byte[] encoded = compress(payload, level);
+                    compressNanos.addAndGet(System.nanoTime() - start);
+                    compressRuns.incrementAndGet();
+                    body = encoded.length < payload.length ? encoded : payload;
+                    compressed.put(payload, body);
+                }
+                if (body == payload) {
+                    noGain.incrementAndGet();
+                    return message;
+                }
+                compressedMessages.incrementAndGet();
+                bytesIn.addAndGet(payload.length);
+                bytesOut.addAndGet(body.length);
+
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+                headers.setNativeHeader(CONTENT_ENCODING_HEADER, DEFLATE);
+                headers.setLeaveMutable(true);
+                return MessageBuilder.createMessage(body, headers.getMessageHeaders());
+            }
+        };
+    }
+
+    /**
+     * deflate（zlib格式）压缩后 Base64 编码
+     */
+    public static byte[] compress(byte[] data, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return Base64.getEncoder().encodeToString(out.toByteArray()).getBytes(StandardCharsets.US_ASCII);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${douniu.ws-compression.stats-interval-ms:600000}")
+    public void logStats() {
+        long count = compressedMessages.get();
+        if (count + belowThreshold.get() + noGain.get() == 0) {
+            return;
+        }
+        long in = bytesIn.get();
+        long out = bytesOut.get();
+        log.info("WebSocket消息压缩 - 压缩会话数: {}, 已压缩消息: {}, 低于阈值: {}, 无收益: {}, 压缩前: {}B, 压缩后: {}B, 压缩率: {}, 压缩次数: {}, 平均压缩耗时: {}μs",
+                compressSessions.size(), count, belowThreshold.get(), noGain.get(), in, out,
+                in > 0 ? String.format("%.2f%%", out * 100.0 / in) : "-",
+                compressRuns.get(),
+                compressRuns.get() > 0 ? String.format("%.1f", compressNanos.get() / 1000.0 / compressRuns.get()) : "-");
+    }
+}
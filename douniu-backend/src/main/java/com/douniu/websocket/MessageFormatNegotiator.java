@@ -0,0 +1,106 @@
+package com.douniu.websocket;
+
+import com.douniu.cache.TtlLruCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按连接协商消息编码
+ *
+ * 客户端在 CONNECT 帧中带上 x-message-format: compact-v{版本} 时，该连接收到的JSON消息改为紧凑编码（见 {@link CompactMessageCodec}），
+ * 并以 content-type: application/vnd.douniu.compact+json 标识；其他连接仍收到JSON。
+ * 简单代理向房间内每个订阅者分发的是同一个消息体数组，按数组实例缓存转换结果，每条广播只转换一次。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MessageFormatNegotiator {
+
+    private final ObjectMapper objectMapper;
+
+    // 使用紧凑编码的会话
+    private final Map<String, Boolean> compactSessions = new ConcurrentHashMap<>();
+
+    // JSON消息体（按数组实例） -> 紧凑编码
+    private final TtlLruCache<byte[], byte[]> encoded = new TtlLruCache<>(256, 10_000);
+
+    /**
+     * 入站拦截：CONNECT 时记录会话申请的编码，DISCONNECT 时清理
+     */
+    public ChannelInterceptor getInboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null || accessor.getSessionId() == null) {
+                    return message;
+                }
+                if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String format = accessor.getFirstNativeHeader(CompactMessageCodec.FORMAT_HEADER);
+                    if (CompactMessageCodec.FORMAT.equals(format)) {
+                        compactSessions.put(accessor.getSessionId(), Boolean.TRUE);
+                    } else if (format != null) {
+                        log.info("不支持的消息编码，使用JSON - sessionId: {}, 编码: {}", accessor.getSessionId(), format);
+                    }
+                } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+                    compactSessions.remove(accessor.getSessionId());
+                }
+                return message;
+            }
+        };
+    }
+
+    /**
+     * 出站拦截：对申请了紧凑编码的会话转换JSON消息体
+     */
+    public ChannelInterceptor getOutboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+                if (accessor == null || accessor.getMessageType() != SimpMessageType.MESSAGE
+                        || accessor.getSessionId() == null || !compactSessions.containsKey(accessor.getSessionId())) {
+                    return message;
+                }
+                MimeType contentType = accessor.getContentType();
+                if (!(message.getPayload() instanceof byte[] json) || contentType == null
+                        || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                    return message;
+                }
+
+                byte[] compact = encoded.get(json);
+                if (compact == null) {
+                    try {
+                        compact = CompactMessageCodec.encode(objectMapper, json);
+                    } catch (Exception e) {
+                        log.warn("紧凑编码转换失败，按JSON发送 - 目标: {}", accessor.getDestination(), e);
+                        return message;
+                    }
+                    encoded.put(json, compact);
+                }
+
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+                headers.setContentType(CompactMessageCodec.CONTENT_TYPE);
+                // 保持头部可变，后续拦截器（压缩）仍可通过 getAccessor 读取
+                headers.setLeaveMutable(true);
+                return MessageBuilder.createMessage(compact, headers.getMessageHeaders());
+            }
+        };
+    }
+}
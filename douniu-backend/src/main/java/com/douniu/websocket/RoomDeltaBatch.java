@@ -0,0 +1,74 @@
+package com.douniu.websocket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个合并窗口内待发送的房间增量
+ *
+ * 增量按"键"合并：同一键（如同一玩家的上下线、同一玩家的准备、房间行、积分）的新增量原位覆盖旧增量，
+ * 保留该键第一次出现的位置，因此与其他键的相对顺序不变；清除准备状态会丢弃窗口内之前的所有准备增量。
+ * 玩家加入、离开时丢弃该玩家窗口内之前的准备、上下线增量（属于上一次在房间中的状态），并把加入/离开增量移到末尾，
+ * 保证之后同一玩家的准备、上下线增量排在它后面。
+ * 非线程安全，由调用方加锁。
+ */
+public class RoomDeltaBatch {
+
+    public static final String READY_RESET = "READY_RESET";
+    private static final String READY_PREFIX = "READY:";
+    private static final String PLAYER_PREFIX = "PLAYER:";
+    private static final String ONLINE_PREFIX = "ONLINE:";
+
+    private final LinkedHashMap<String, Map<String, Object>> pending = new LinkedHashMap<>();
+
+    /**
+     * 加入一条增量，同键覆盖
+     */
+    public void add(String key, Map<String, Object> delta) {
+        if (READY_RESET.equals(key)) {
+            pending.keySet().removeIf(k -> k.startsWith(READY_PREFIX) || k.equals(READY_RESET));
+        } else if (key.startsWith(PLAYER_PREFIX)) {
+            String userId = key.substring(PLAYER_PREFIX.length());
+            pending.remove(READY_PREFIX + userId);
+            pending.remove(ONLINE_PREFIX + userId);
+            pending.remove(key);
+        }
+        pending.put(key, delta);
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * 取出窗口内合并后的全部增量并清空
+     */
+    public List<Map<String, Object>> drain() {
+        List<Map<String, Object>> deltas = new ArrayList<>(pending.values());
+        pending.clear();
+        return deltas;
+    }
+
+    /**
+     * 准备增量的合并键
+     */
+    public static String readyKey(Long userId) {
+        return READY_PREFIX + userId;
+    }
+
+    /**
+     * 玩家加入、离开增量的合并键
+     */
+    public static String playerKey(Long userId) {
+        return PLAYER_PREFIX + userId;
+    }
+
+    /**
+     * 上下线增量的合并键
+     */
+    public static String onlineKey(Long userId) {
+        return ONLINE_PREFIX + userId;
+    }
+}
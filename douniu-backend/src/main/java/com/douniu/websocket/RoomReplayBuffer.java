@@ -0,0 +1,156 @@
+package com.douniu.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 房间消息序号和补发缓冲
+ *
+ * 发往 /topic/room/{roomId}/... 的消息在进入代理前按房间分配递增序号，放在 x-room-seq 头部中，并记入该房间的环形缓冲。
+ * 客户端断线重连后带上收到的最大序号请求续传，缓冲中还有的消息原样补发；已被覆盖、或序号不属于当前序列（服务重启）时改发快照。
+ * 倒计时消息每秒一条、过时即无用，不编号也不缓冲。
+ * 序号以房间首条消息时的毫秒时间戳 * 1000 为起点，服务重启后客户端的旧序号必然不在缓冲范围内。
+ */
+@Component
+public class RoomReplayBuffer {
+
+    public static final String SEQ_HEADER = "x-room-seq";
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final int bufferSize;
+    private final long idleTtlMs;
+
+    // 房间消息记录：roomId -> log
+    private final Map<Long, RoomLog> logs = new ConcurrentHashMap<>();
+
+    public RoomReplayBuffer(@Value("${douniu.room-replay.buffer-size:64}") int bufferSize,
+                            @Value("${douniu.room-replay.idle-ttl-ms:600000}") long idleTtlMs) {
+        this.bufferSize = bufferSize;
+        this.idleTtlMs = idleTtlMs;
+    }
+
+    /**
+     * 缓冲中的一条房间消息
+     */
+    public record Frame(long seq, String destination, byte[] payload) {
+    }
+
+    /**
+     * 代理通道拦截：给房间消息编号并记入缓冲
+     */
+    public ChannelInterceptor getBrokerInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+                if (accessor == null || accessor.getMessageType() != SimpMessageType.MESSAGE
+                        || !(message.getPayload() instanceof byte[] payload)) {
+                    return message;
+                }
+                String destination = accessor.getDestination();
+                Long roomId = parseRoomId(destination);
+                if (roomId == null || destination.endsWith("/countdown")) {
+                    return message;
+                }
+
+                long seq = logs.computeIfAbsent(roomId, id -> new RoomLog(bufferSize, System.currentTimeMillis() * 1000))
+                        .append(destination, payload);
+                SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(message);
+                headers.setNativeHeader(SEQ_HEADER, Long.toString(seq));
+                return MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+            }
+        };
+    }
+
+    /**
+     * 序号大于 afterSeq 的房间消息；需要的消息已不在缓冲中（落后太多、服务重启或房间已回收）时返回 null
+     */
+    public List<Frame> since(Long roomId, long afterSeq) {
+        RoomLog roomLog = logs.get(roomId);
+        return roomLog != null ? roomLog.since(afterSeq) : null;
+    }
+
+    /**
+     * 房间当前的最大序号（没有记录时为0）
+     */
+    public long getLastSeq(Long roomId) {
+        RoomLog roomLog = logs.get(roomId);
+        return roomLog != null ? roomLog.getLastSeq() : 0;
+    }
+
+    /**
+     * 回收长时间没有消息的房间
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - idleTtlMs;
+        logs.entrySet().removeIf(entry -> entry.getValue().lastAppendAt < deadline);
+    }
+
+    static Long parseRoomId(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return null;
+        }
+        int end = destination.indexOf('/', ROOM_TOPIC_PREFIX.length());
+        try {
+            return Long.valueOf(destination.substring(ROOM_TOPIC_PREFIX.length(), end < 0 ? destination.length() : end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个房间的环形缓冲
+     */
+    static final class RoomLog {
+
+        private final Frame[] ring;
+        private long lastSeq;
+        private int size;
+        private volatile long lastAppendAt;
+
+        RoomLog(int capacity, long firstSeq) {
+            this.ring = new Frame[capacity];
+            this.lastSeq = firstSeq - 1;
+            this.lastAppendAt = System.currentTimeMillis();
+        }
+
+        synchronized long append(String destination, byte[] payload) {
+            long seq = ++lastSeq;
+            ring[(int) (seq % ring.length)] = new Frame(seq, destination, payload);
+            size = Math.min(size + 1, ring.length);
+            lastAppendAt = System.currentTimeMillis();
+            return seq;
+        }
+
+        synchronized long getLastSeq() {
+            return lastSeq;
+        }
+
+        synchronized List<Frame> since(long afterSeq) {
+            long oldest = lastSeq - size + 1;
+            if (afterSeq > lastSeq || afterSeq < oldest - 1) {
+                return null;
+            }
+            List<Frame> frames = new ArrayList<>((int) (lastSeq - afterSeq));
+            for (long seq = afterSeq + 1; seq <= lastSeq; seq++) {
+                frames.add(ring[(int) (seq % ring.length)]);
+            }
+            return frames;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.douniu.websocket;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.entity.Room;
+import com.douniu.entity.RoomPlayer;
+import com.douniu.entity.User;
+import com.douniu.enums.GameStatus;
+import com.douniu.service.RoomService;
+import com.douniu.service.UserService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 房间状态增量广播
+ *
+ * 每个房间维护一个单调递增的状态版本号。加入、离开、准备、上下线、庄家/管理员变更、开局结算等变化
+ * 只广播增量到 /topic/room/{roomId}/delta，不再每次重新查询房间和完整玩家列表。
+ * 增量都是"设置为某值"的形式，重复应用结果不变；客户端发现版本号不连续时通过 /room/{roomId}/state 拉取完整快照。
+ *
+ * 房间变化先进入该房间的合并窗口（见 {@link RoomDeltaBatch}），窗口结束时合并为一条消息 {version, deltas} 发送，
+ * 每个房间每个窗口最多发送一次、占用一个版本号，多名玩家同时操作时不再逐条序列化和分发。
+ *
+ * 版本号以首次使用时的毫秒时间戳 * 1000 为起点，服务重启或房间结束、长时间没有变化回收后重新开始的版本号仍大于之前的版本号，
+ * 客户端据此判断为版本缺口并拉取快照。广播通道只在房间有变化时创建，拉取快照不会创建。
+ */
+@Slf4j
+@Component
+public class RoomStateBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomService roomService;
+    private final UserService userService;
+    private final long coalesceMs;
+    private final long idleTtlMs;
+    private final ScheduledExecutorService flusher;
+
+    // 房间广播通道（版本号 + 合并窗口）：roomId -> channel
+    private final Map<Long, RoomChannel> channels = new ConcurrentHashMap<>();
+    // 房间准备状态：roomId -> Set<userId>，没有已准备的玩家时移除
+    private final Map<Long, Set<Long>> readyPlayers = new ConcurrentHashMap<>();
+
+    public RoomStateBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                RoomService roomService,
+                                UserService userService,
+                                @Value("${douniu.room-state.coalesce-ms:20}") long coalesceMs,
+                                @Value("${douniu.room-state.idle-ttl-ms:600000}") long idleTtlMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.roomService = roomService;
+        this.userService = userService;
+        this.coalesceMs = coalesceMs;
+        this.idleTtlMs = idleTtlMs;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "room-state-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 房间已准备的玩家
+     */
+    public Set<Long> getReadyPlayers(Long roomId) {
+        return readyPlayers.getOrDefault(roomId, new HashSet<>());
+    }
+
+    /**
+     * 玩家准备
+     */
+    public void markReady(Long roomId, Long userId) {
+        boolean[] added = {false};
+        readyPlayers.compute(roomId, (k, ready) -> {
+            Set<Long> set = ready != null ? ready : ConcurrentHashMap.newKeySet();
+            added[0] = set.add(userId);
+            return set;
+        });
+        if (added[0]) {
+            Map<String, Object> delta = new HashMap<>();
+            delta.put("userId", userId);
+            publish(roomId, RoomDeltaBatch.readyKey(userId), "READY", delta);
+        }
+    }
+
+    /**
+     * 清除房间所有准备状态（开局时）
+     */
+    public void clearReady(Long roomId) {
+        Set<Long> cleared = readyPlayers.remove(roomId);
+        if (cleared != null && !cleared.isEmpty()) {
+            publish(roomId, RoomDeltaBatch.READY_RESET, "READY_RESET", new HashMap<>());
+        }
+    }
+
+    /**
+     * 玩家加入房间（昵称从用户资料缓存读取）
+     */
+    public void playerJoined(Long roomId, RoomPlayer player) {
+        User user = userService.getUserProfile(player.getUserId());
+        player.setNickname(user != null ? user.getNickname() : null);
+        player.setIsOnline(true);
+        player.setIsReady(false);
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("player", player);
+        publish(roomId, RoomDeltaBatch.playerKey(player.getUserId()), "JOIN", delta);
+    }
+
+    /**
+     * 玩家离开房间
+     */
+    public void playerLeft(Long roomId, Long userId) {
+        readyPlayers.computeIfPresent(roomId, (k, ready) -> {
+            ready.remove(userId);
+            return ready.isEmpty() ? null : ready;
+        });
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("userId", userId);
+        publish(roomId, RoomDeltaBatch.playerKey(userId), "LEAVE", delta);
+    }
+
+    /**
+     * 玩家上线/离线
+     */
+    public void playerOnline(Long roomId, Long userId, boolean online) {
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("userId", userId);
+        publish(roomId, RoomDeltaBatch.onlineKey(userId), online ? "ONLINE" : "OFFLINE", delta);
+    }
+
+    /**
+     * 庄家变更
+     */
+    public void dealerChanged(Long roomId, Long dealerId) {
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("userId", dealerId);
+        publish(roomId, "DEALER", "DEALER", delta);
+    }
+
+    /**
+     * 管理员变更
+     */
+    public void adminChanged(Long roomId, Long adminId) {
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("userId", adminId);
+        publish(roomId, "ADMIN", "ADMIN", delta);
+    }
+
+    /**
+     * 房间状态变更（开局、结算、结束），只查询房间一行
+     * 房间结束后立即发送并回收广播通道和准备状态
+     */
+    public void roomChanged(Long roomId) {
+        Room room = roomService.getRoom(roomId);
+        if (room == null) {
+            return;
+        }
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("room", room);
+        publish(roomId, "ROOM", "ROOM", delta);
+        if (room.getStatus() == GameStatus.FINISHED.getCode()) {
+            RoomChannel channel = channels.remove(roomId);
+            if (channel != null) {
+                flush(roomId, channel);
+            }
+            readyPlayers.remove(roomId);
+        }
+    }
+
+    /**
+     * 房间积分变更（结算、第一局开局重置）
+     */
+    public void scoresChanged(Long roomId) {
+        Map<String, Object> delta = new HashMap<>();
+        delta.put("scores", roomService.getPlayerScores(roomId));
+        publish(roomId, "SCORES", "SCORES", delta);
+    }
+
+    /**
+     * 房间完整快照（客户端首次进入或发现版本缺口时拉取）
+     * 先读取版本号再查询数据库，快照内容不早于该版本，之后到达的增量重复应用也不会出错
+     * 房间还没有广播通道时按新通道的起点返回，之后首次变化时创建的通道版本号不会小于该值
+     */
+    public Map<String, Object> getSnapshot(Long roomId, Function<Long, Boolean> onlineStatusChecker) {
+        long initialVersion = RoomChannel.initialVersion();
+        RoomChannel channel = channels.get(roomId);
+        long version = channel != null ? channel.version.get() : initialVersion;
+        Room room = roomService.getRoom(roomId);
+        List<RoomPlayer> players = roomService.getRoomPlayers(roomId, onlineStatusChecker);
+        Set<Long> ready = getReadyPlayers(roomId);
+        for (RoomPlayer player : players) {
+            player.setIsReady(ready.contains(player.getUserId()));
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("version", version);
+        snapshot.put("room", room);
+        snapshot.put("players", players);
+        return snapshot;
+    }
+
+    /**
+     * 回收长时间没有变化的房间广播通道（未正常结束的房间），之后再有变化时重新创建
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - idleTtlMs;
+        channels.forEach((roomId, channel) -> {
+            synchronized (channel) {
+                if (!channel.scheduled && channel.lastPublishAt < deadline) {
+                    channels.remove(roomId, channel);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+    }
+
+    /**
+     * 增量进入房间的合并窗口，窗口内第一条增量负责安排发送
+     */
+    private void publish(Long roomId, String key, String type, Map<String, Object> delta) {
+        delta.put("type", type);
+        RoomChannel channel = channel(roomId);
+        boolean flushNow = false;
+        synchronized (channel) {
+            channel.batch.add(key, delta);
+            channel.lastPublishAt = System.currentTimeMillis();
+            if (!channel.scheduled) {
+                channel.scheduled = true;
+                flushNow = coalesceMs <= 0;
+                if (!flushNow) {
+                    flusher.schedule(() -> flush(roomId, channel), coalesceMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (flushNow) {
+            flush(roomId, channel);
+        }
+    }
+
+    /**
+     * 发送合并窗口内的增量，分配版本号与发送在同一把锁内，保证同一房间的版本号与发送顺序一致
+     */
+    private void flush(Long roomId, RoomChannel channel) {
+        synchronized (channel) {
+            channel.scheduled = false;
+            if (channel.batch.isEmpty()) {
+                return;
+            }
+            Map<String, Object> message = new HashMap<>();
+            message.put("deltas", channel.batch.drain());
+            message.put("version", channel.version.incrementAndGet());
+            try {
+                messagingTemplate.convertAndSend("/topic/room/" + roomId + "/delta", ApiResponse.success(message));
+            } catch (Exception e) {
+                log.warn("广播房间增量失败 - 房间ID: {}", roomId, e);
+            }
+        }
+    }
+
+    private RoomChannel channel(Long roomId) {
+        return channels.computeIfAbsent(roomId, k -> new RoomChannel());
+    }
+
+    /**
+     * 房间广播通道：版本号以创建时的毫秒时间戳 * 1000 为起点
+     */
+    private static class RoomChannel {
+        private final AtomicLong version = new AtomicLong(initialVersion());
+        private final RoomDeltaBatch batch = new RoomDeltaBatch();
+        private boolean scheduled;
+        private long lastPublishAt = System.currentTimeMillis();
+
+        static long initialVersion() {
+            return System.currentTimeMillis() * 1000;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.douniu.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 按目标地址索引的订阅表（替换简单代理默认的订阅表）
+ *
+ * 默认订阅表只缓存最近 1024 个目标地址，缓存未命中时要遍历所有会话的所有订阅做路径匹配，房间多了以后每条广播的开销随总订阅数增长。
+ * 这里的订阅都是精确地址：房间主题带房间ID（/topic/room/{id}/...），用户目标解析后带会话ID（/queue/...-user{sessionId}），
+ * 直接按地址哈希索引，每条消息的查找开销只与该地址的订阅者数量有关。
+ * 不支持通配符订阅（客户端不使用），带通配符的地址只按字面匹配，也避免客户端用通配符订阅所有房间；不支持 selector 头部。
+ * 每个地址的订阅者表是并发哈希表，订阅、取消订阅只增删一项，开销与该地址的订阅者数量无关（大厅主题有所有大厅用户，重连风暴时也不会整体复制）；
+ * 分发时返回订阅者表的只读视图，不复制，遍历期间的订阅变化按弱一致处理。
+ */
+public class RoomSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    // 目标地址 -> 订阅者（sessionId -> subscriptionId 列表）
+    private final Map<String, Map<String, List<String>>> destinations = new ConcurrentHashMap<>();
+
+    // sessionId -> (subscriptionId -> 目标地址)，用于取消订阅和断开连接时清理
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        // 在地址的 compute 中增删，避免与删除空订阅者表并发时丢失订阅
+        destinations.compute(destination, (key, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = new ConcurrentHashMap<>();
+            }
+            subscribers.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>()).add(subscriptionId);
+            return subscribers;
+        });
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, String> subscriptions = sessions.get(sessionId);
+        String destination = subscriptions != null ? subscriptions.remove(subscriptionId) : null;
+        if (destination != null) {
+            removeSubscriber(destination, sessionId, subscriptionId);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, String> subscriptions = sessions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, destination) -> removeSubscriber(destination, sessionId, subscriptionId));
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        Map<String, List<String>> subscribers = destinations.get(destination);
+        return subscribers != null
+                ? CollectionUtils.unmodifiableMultiValueMap(CollectionUtils.toMultiValueMap(subscribers))
+                : new LinkedMultiValueMap<>();
+    }
+
+    private void removeSubscriber(String destination, String sessionId, String subscriptionId) {
+        destinations.computeIfPresent(destination, (key, subscribers) -> {
+            subscribers.computeIfPresent(sessionId, (id, ids) -> {
+                ids.remove(subscriptionId);
+                return ids.isEmpty() ? null : ids;
+            });
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * 有订阅者的目标地址数
+     */
+    public int getDestinationCount() {
+        return destinations.size();
+    }
+
+    /**
+     * 有订阅的会话数
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,237 @@
+package com.douniu.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 慢客户端检测和下行背压
+ *
+ * 每个会话统计已交给发送队列、还没有真正写出的帧数（下行积压）。积压达到阈值后，倒计时、房间增量等可丢弃的消息直接丢弃
+ * （房间增量丢失后客户端发现版本缺口会拉取快照），发牌、结算等关键消息照常发送；积压持续超过限定时间的会话直接关闭，客户端重连后断线续传。
+ * 传输层另有发送缓冲和单次发送时长的硬上限（见 WebSocketConfig），超过时由 Spring 关闭会话。
+ * 同一会话同一时间只有一个线程在写，其他线程只入队后返回，慢客户端不会占住其他会话的下行线程。
+ * 定期输出积压最多的会话和丢弃、关闭次数。
+ */
+@Slf4j
+@Component
+public class SlowConsumerGuard {
+
+    public enum Action { SEND, DROP, CLOSE }
+
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final int dropPendingFrames;
+    private final long behindTimeoutMs;
+    private final List<String> droppableSuffixes;
+
+    // 会话下行统计：sessionId -> stats
+    private final Map<String, SessionStats> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong closedTotal = new AtomicLong();
+
+    public SlowConsumerGuard(@Value("${douniu.ws-backpressure.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                             @Value("${douniu.ws-backpressure.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                             @Value("${douniu.ws-backpressure.drop-pending-frames:32}") int dropPendingFrames,
+                             @Value("${douniu.ws-backpressure.behind-timeout-ms:15000}") long behindTimeoutMs,
+                             @Value("${douniu.ws-backpressure.droppable-suffixes:/countdown,/delta}") String droppableSuffixes) {
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.dropPendingFrames = dropPendingFrames;
+        this.behindTimeoutMs = behindTimeoutMs;
+        this.droppableSuffixes = Arrays.stream(droppableSuffixes.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+
+    public int getSendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    public int getSendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+
+    /**
+     * 会话下行统计和背压策略
+     */
+    static final class SessionStats {
+
+        private final WebSocketSession session;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong sendNanos = new AtomicLong();
+        private volatile int maxPending;
+        private volatile long behindSince; // 积压达到阈值的时间，0表示没有积压
+
+        SessionStats(WebSocketSession session) {
+            this.session = session;
+        }
+
+        /**
+         * 一条下行消息交给发送队列前：决定发送、丢弃还是关闭会话
+         */
+        Action onOutbound(boolean droppable, long now, int dropPendingFrames, long behindTimeoutMs) {
+            if (pending.get() < dropPendingFrames) {
+                behindSince = 0;
+            } else {
+                if (behindSince == 0) {
+                    behindSince = now;
+                } else if (now - behindSince > behindTimeoutMs) {
+                    return Action.CLOSE;
+                }
+                if (droppable) {
+                    dropped.incrementAndGet();
+                    return Action.DROP;
+                }
+            }
+            int queued = pending.incrementAndGet();
+            if (queued > maxPending) {
+                maxPending = queued;
+            }
+            return Action.SEND;
+        }
+
+        /**
+         * 一帧写出完成（写出失败也算完成）
+         */
+        void onSent(long nanos) {
+            pending.updateAndGet(n -> Math.max(0, n - 1));
+            sent.incrementAndGet();
+            sendNanos.addAndGet(nanos);
+        }
+
+        int getPending() {
+            return pending.get();
+        }
+    }
+
+    /**
+     * 包装传输层会话，统计每帧真正写出的时间
+     */
+    public WebSocketHandlerDecoratorFactory getDecoratorFactory() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionStats stats = new SessionStats(session);
+                sessions.put(session.getId(), stats);
+                super.afterConnectionEstablished(new WebSocketSessionDecorator(session) {
+                    @Override
+                    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                        long start = System.nanoTime();
+                        try {
+                            super.sendMessage(message);
+                        } finally {
+                            stats.onSent(System.nanoTime() - start);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * 出站拦截：按会话积压执行背压策略（需排在编码、压缩之前，丢弃的消息不再转换）
+     */
+    public ChannelInterceptor getOutboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+                SessionStats stats = accessor != null && accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+                if (stats == null) {
+                    return message;
+                }
+                boolean droppable = accessor.getMessageType() == SimpMessageType.MESSAGE && isDroppable(accessor.getDestination());
+                Action action = stats.onOutbound(droppable, System.currentTimeMillis(), dropPendingFrames, behindTimeoutMs);
+                if (action == Action.DROP) {
+                    droppedTotal.incrementAndGet();
+                    return null;
+                }
+                if (action == Action.CLOSE) {
+                    close(stats);
+                    return null;
+                }
+                return message;
+            }
+        };
+    }
+
+    private boolean isDroppable(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String suffix : droppableSuffixes) {
+            if (destination.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void close(SessionStats stats) {
+        if (sessions.remove(stats.session.getId()) == null) {
+            return;
+        }
+        closedTotal.incrementAndGet();
+        log.warn("WebSocket客户端下行积压超过 {}ms，关闭会话 - sessionId: {}, 积压帧数: {}, 已丢弃: {}",
+                behindTimeoutMs, stats.session.getId(), stats.getPending(), stats.dropped.get());
+        try {
+            stats.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.warn("关闭慢客户端会话失败 - sessionId: {}", stats.session.getId(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${douniu.ws-backpressure.stats-interval-ms:600000}")
+    public void logStats() {
+        if (sessions.isEmpty() && droppedTotal.get() == 0 && closedTotal.get() == 0) {
+            return;
+        }
+        List<String> slowest = sessions.entrySet().stream()
+                .filter(entry -> entry.getValue().maxPending > 1)
+                .sorted(Comparator.comparingInt((Map.Entry<String, SessionStats> entry) -> entry.getValue().maxPending).reversed())
+                .limit(5)
+                .map(entry -> {
+                    SessionStats stats = entry.getValue();
+                    long sent = stats.sent.get();
+                    return String.format("%s(积压%d/峰值%d, 已发送%d, 已丢弃%d, 平均写出%.1fμs)", entry.getKey(),
+                            stats.getPending(), stats.maxPending, sent, stats.dropped.get(),
+                            sent > 0 ? stats.sendNanos.get() / 1000.0 / sent : 0.0);
+                })
+                .toList();
+        log.info("WebSocket下行背压 - 会话数: {}, 累计丢弃: {}, 累计关闭: {}, 积压最多的会话: {}",
+                sessions.size(), droppedTotal.get(), closedTotal.get(), slowest);
+    }
+}
@@ -0,0 +1,69 @@
+package com.douniu.websocket;
+
+import cn.dev33.satoken.stp.StpUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * STOMP连接认证
+ *
+ * CONNECT 帧必须带上 Sa-Token 的 token 头部（头部名与 sa-token.token-name 一致），校验通过后把用户绑定为会话的 Principal，
+ * 之后该会话的所有消息都带有该用户，消息处理方法直接从 Principal 取用户ID，不再信任消息体中的 userId；
+ * 按用户发送的消息（/user/queue/...）也依赖该 Principal 解析到具体会话。
+ */
+@Slf4j
+@Component
+public class StompAuthenticator {
+
+    /**
+     * 会话绑定的用户（名称为用户ID）
+     */
+    public record UserPrincipal(Long userId) implements Principal {
+        @Override
+        public String getName() {
+            return userId.toString();
+        }
+    }
+
+    /**
+     * 从会话的 Principal 中获取用户ID
+     */
+    public static Long getUserId(Principal principal) {
+        if (principal instanceof UserPrincipal user) {
+            return user.userId();
+        }
+        throw new RuntimeException("未登录，无法获取用户ID");
+    }
+
+    /**
+     * 入站拦截：CONNECT 时校验 token 并绑定用户，校验失败时拒绝连接（客户端收到 ERROR 帧）
+     */
+    public ChannelInterceptor getInboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    return message;
+                }
+                String token = accessor.getFirstNativeHeader(StpUtil.getTokenName());
+                Object loginId = token != null ? StpUtil.getLoginIdByToken(token) : null;
+                if (loginId == null) {
+                    log.warn("WebSocket连接认证失败 - sessionId: {}", accessor.getSessionId());
+                    throw new RuntimeException("未登录或登录已过期");
+                }
+                accessor.setUser(new UserPrincipal(Long.valueOf(loginId.toString())));
+                log.info("WebSocket连接认证成功 - 用户ID: {}, sessionId: {}", loginId, accessor.getSessionId());
+                return message;
+            }
+        };
+    }
+}
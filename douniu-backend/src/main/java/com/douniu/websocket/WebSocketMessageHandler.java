@@ -2,24 +2,29 @@ package com.douniu.websocket;
 
 import com.alibaba.fastjson2.JSON;
 import com.douniu.dto.ApiResponse;
-import com.douniu.entity.GameDetail;
 import com.douniu.entity.GameRecord;
 import com.douniu.entity.Room;
 import com.douniu.entity.RoomPlayer;
-import com.douniu.enums.CardType;
 import com.douniu.service.GameService;
 import com.douniu.service.RoomService;
 import com.douniu.service.UserService;
 import com.douniu.utils.CardTypeCalculator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
 
+import java.security.Principal;
+
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -38,41 +43,24 @@ public class WebSocketMessageHandler {
     private final GameService gameService;
     private final UserService userService;
     private final com.douniu.config.WebSocketEventListener webSocketEventListener;
+    private final RoomStateBroadcaster roomStateBroadcaster;
+    private final ObjectMapper objectMapper;
+    private final RoomReplayBuffer roomReplayBuffer;
+    private final GameStateTracker gameStateTracker;
     
-    // 房间准备状态管理：roomId -> Set<userId>
-    private final Map<Long, Set<Long>> roomReadyPlayers = new ConcurrentHashMap<>();
     // 开牌倒计时定时器：gameRecordId -> Timer
     private final Map<Long, java.util.Timer> revealCountdownTimers = new ConcurrentHashMap<>();
     // 开牌倒计时状态：gameRecordId -> Set<userId>（已开牌的玩家）
     private final Map<Long, Set<Long>> revealedPlayers = new ConcurrentHashMap<>();
 
-    /**
-     * 从消息中获取用户ID的辅助方法
-     */
-    private Long getUserIdFromMessage(Map<String, Object> payload) {
-        // 从payload中获取userId（前端传递）
-        if (payload != null && payload.containsKey("userId")) {
-            Object userIdObj = payload.get("userId");
-            if (userIdObj != null) {
-                try {
-                    return Long.valueOf(userIdObj.toString());
-                } catch (NumberFormatException e) {
-                    log.warn("userId格式错误: {}", userIdObj);
-                }
-            }
-        }
-
-        throw new RuntimeException("无法获取用户ID，请确保消息中包含userId");
-    }
-
     /**
      * 加入房间
      */
     @MessageMapping("/room/join")
-    public void joinRoom(@Payload Map<String, Object> payload, org.springframework.messaging.Message<?> message) {
+    public void joinRoom(@Payload Map<String, Object> payload, org.springframework.messaging.Message<?> message, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             String roomCode = (String) payload.get("roomCode");
 
             Room room = roomService.getRoomByCode(roomCode);
@@ -83,7 +71,8 @@ public class WebSocketMessageHandler {
 
             // 尝试加入房间（如果已在房间中会抛出异常，需要捕获）
             try {
-                roomService.joinRoom(room.getId(), userId, null);
+                RoomPlayer joined = roomService.joinRoom(room.getId(), userId, null);
+                roomStateBroadcaster.playerJoined(room.getId(), joined);
             } catch (Exception e) {
                 // 如果已在房间中，忽略错误
                 if (!e.getMessage().contains("已在房间中")) {
@@ -110,9 +99,6 @@ public class WebSocketMessageHandler {
                 webSocketEventListener.recordUserJoinRoom(userId, room.getId());
             }
 
-            // 广播房间信息更新
-            broadcastRoomUpdate(room.getId());
-            
             // 检查是否可以开始游戏（如果所有在线玩家都已准备）
             checkAndStartGameIfReady(room.getId());
 
@@ -125,14 +111,75 @@ public class WebSocketMessageHandler {
         }
     }
 
+    /**
+     * 断线续传：补发序号大于 lastSeq 的房间消息，缓冲中已没有时改发房间快照
+     */
+    @MessageMapping("/room/resume")
+    public void resumeRoom(@Payload Map<String, Object> payload, Principal principal) {
+        Long userId = null;
+        try {
+            userId = StompAuthenticator.getUserId(principal);
+            Long roomId = Long.valueOf(payload.get("roomId").toString());
+            long lastSeq = Long.parseLong(payload.get("lastSeq").toString());
+
+            Map<String, Object> data = new HashMap<>();
+            data.put("roomId", roomId);
+            List<RoomReplayBuffer.Frame> frames = roomReplayBuffer.since(roomId, lastSeq);
+            if (frames != null) {
+                List<Map<String, Object>> replay = new ArrayList<>(frames.size());
+                for (RoomReplayBuffer.Frame frame : frames) {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("seq", frame.seq());
+                    item.put("destination", frame.destination());
+                    item.put("payload", objectMapper.readTree(frame.payload()));
+                    replay.add(item);
+                }
+                data.put("seq", frames.isEmpty() ? lastSeq : frames.get(frames.size() - 1).seq());
+                data.put("frames", replay);
+            } else {
+                // 先取序号再取快照，之后的消息客户端按序号继续接收
+                data.put("seq", roomReplayBuffer.getLastSeq(roomId));
+                data.put("snapshot", roomStateBroadcaster.getSnapshot(roomId, webSocketEventListener::isUserOnline));
+                data.put("gameState", gameStateTracker.getSnapshot(roomId, userId));
+            }
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/room/resume", ApiResponse.success(data));
+            log.info("断线续传 - 用户ID: {}, 房间ID: {}, 客户端序号: {}, 补发消息数: {}",
+                    userId, roomId, lastSeq, frames != null ? frames.size() : "快照");
+        } catch (Exception e) {
+            log.error("断线续传失败", e);
+            if (userId != null) {
+                sendError(userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 当前一局的对局快照（只包含自己的手牌）
+     */
+    @MessageMapping("/game/state")
+    public void gameState(@Payload Map<String, Object> payload, Principal principal) {
+        Long userId = null;
+        try {
+            userId = StompAuthenticator.getUserId(principal);
+            Long roomId = Long.valueOf(payload.get("roomId").toString());
+            messagingTemplate.convertAndSendToUser(userId.toString(), "/queue/game/state",
+                    ApiResponse.success(gameStateTracker.getSnapshot(roomId, userId)));
+        } catch (Exception e) {
+            log.error("获取对局快照失败", e);
+            if (userId != null) {
+                sendError(userId, e.getMessage());
+            }
+        }
+    }
+
     /**
      * 离开房间
      */
     @MessageMapping("/room/leave")
-    public void leaveRoom(@Payload Map<String, Object> payload) {
+    public void leaveRoom(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             String roomCode = (String) payload.get("roomCode");
 
             Room room = roomService.getRoomByCode(roomCode);
@@ -140,7 +187,7 @@ public class WebSocketMessageHandler {
                 roomService.leaveRoom(room.getId(), userId);
                 // 记录用户离开房间
                 webSocketEventListener.recordUserLeaveRoom(userId);
-                broadcastRoomUpdate(room.getId());
+                roomStateBroadcaster.playerLeft(room.getId(), userId);
             }
 
             sendSuccess(userId, "离开房间成功", null);
@@ -156,15 +203,15 @@ public class WebSocketMessageHandler {
      * 设置管理员
      */
     @MessageMapping("/room/setAdmin")
-    public void setAdmin(@Payload Map<String, Object> payload) {
+    public void setAdmin(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long roomId = Long.valueOf(payload.get("roomId").toString());
             Long newAdminId = Long.valueOf(payload.get("newAdminId").toString());
 
             roomService.setAdmin(roomId, userId, newAdminId);
-            broadcastRoomUpdate(roomId);
+            roomStateBroadcaster.adminChanged(roomId, newAdminId);
             sendSuccess(userId, "设置管理员成功", null);
         } catch (Exception e) {
             log.error("设置管理员失败", e);
@@ -178,17 +225,17 @@ public class WebSocketMessageHandler {
      * 设置庄家
      */
     @MessageMapping("/game/setDealer")
-    public void setDealer(@Payload Map<String, Object> payload) {
+    public void setDealer(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long roomId = Long.valueOf(payload.get("roomId").toString());
             Long dealerId = Long.valueOf(payload.get("dealerId").toString());
 
             gameService.setDealer(roomId, dealerId);
             
-            // 广播房间更新，通知所有玩家庄家已变更
-            broadcastRoomUpdate(roomId);
+            // 广播庄家变更增量
+            roomStateBroadcaster.dealerChanged(roomId, dealerId);
             
             // 额外发送一个专门的庄家变更通知，包含更详细的信息
             List<RoomPlayer> players = roomService.getRoomPlayers(roomId);
@@ -218,26 +265,23 @@ public class WebSocketMessageHandler {
      * 准备
      */
     @MessageMapping("/game/ready")
-    public void ready(@Payload Map<String, Object> payload) {
+    public void ready(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long roomId = Long.valueOf(payload.get("roomId").toString());
             
             log.info("收到准备请求 - 房间ID: {}, 用户ID: {}", roomId, userId);
             
             // 添加到准备列表
-            roomReadyPlayers.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+            roomStateBroadcaster.markReady(roomId, userId);
             
-            Set<Long> readySet = roomReadyPlayers.getOrDefault(roomId, new HashSet<>());
+            Set<Long> readySet = roomStateBroadcaster.getReadyPlayers(roomId);
             int readyCount = readySet.size();
             
             log.info("准备状态更新 - 房间ID: {}, 用户ID: {}, 已准备数: {}, 已准备玩家: {}", 
                 roomId, userId, readyCount, readySet);
             
-            // 更新玩家准备状态并广播
-            broadcastRoomUpdate(roomId);
-            
             // 检查是否可以开始游戏
             checkAndStartGameIfReady(roomId);
             
@@ -260,7 +304,7 @@ public class WebSocketMessageHandler {
         try {
             // 获取房间玩家列表（带在线状态）
             List<RoomPlayer> players = roomService.getRoomPlayers(roomId, webSocketEventListener::isUserOnline);
-            Set<Long> readySet = roomReadyPlayers.getOrDefault(roomId, new HashSet<>());
+            Set<Long> readySet = roomStateBroadcaster.getReadyPlayers(roomId);
             int readyCount = readySet.size();
             
             // 获取在线玩家列表
@@ -339,9 +383,10 @@ public class WebSocketMessageHandler {
         // 广播开始倒计时
         Map<String, Object> countdownData = new HashMap<>();
         countdownData.put("countdown", 10);
-        countdownData.put("readyCount", roomReadyPlayers.getOrDefault(roomId, new HashSet<>()).size());
+        countdownData.put("readyCount", roomStateBroadcaster.getReadyPlayers(roomId).size());
         messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/ready/countdown",
                 ApiResponse.success(countdownData));
+        gameStateTracker.readyCountdownStarted(roomId, 10);
         
         // 启动倒计时
         java.util.Timer timer = new java.util.Timer();
@@ -354,7 +399,7 @@ public class WebSocketMessageHandler {
                 List<RoomPlayer> onlinePlayers = players.stream()
                         .filter(p -> p.getIsOnline() != null && p.getIsOnline())
                         .collect(java.util.stream.Collectors.toList());
-                Set<Long> readySet = roomReadyPlayers.getOrDefault(roomId, new HashSet<>());
+                Set<Long> readySet = roomStateBroadcaster.getReadyPlayers(roomId);
                 
                 // 如果所有在线玩家都准备了，立即开始游戏
                 boolean allReady = onlinePlayers.size() >= 2 && 
@@ -394,7 +439,7 @@ public class WebSocketMessageHandler {
         try {
             log.info("开始游戏 - 房间ID: {}", roomId);
             // 获取已准备的玩家列表
-            Set<Long> readySet = roomReadyPlayers.getOrDefault(roomId, new HashSet<>());
+            Set<Long> readySet = roomStateBroadcaster.getReadyPlayers(roomId);
             log.info("已准备的玩家列表: {}", readySet);
             if (readySet.isEmpty()) {
                 log.warn("房间 {} 没有已准备的玩家", roomId);
@@ -402,7 +447,7 @@ public class WebSocketMessageHandler {
             }
             
             // 清除准备状态和倒计时
-            roomReadyPlayers.remove(roomId);
+            roomStateBroadcaster.clearReady(roomId);
             if (roomReadyCountdownTimers.containsKey(roomId)) {
                 roomReadyCountdownTimers.get(roomId).cancel();
                 roomReadyCountdownTimers.remove(roomId);
@@ -446,7 +491,11 @@ public class WebSocketMessageHandler {
             messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/start",
                     ApiResponse.success(data));
 
-            broadcastRoomUpdate(roomId);
+            roomStateBroadcaster.roomChanged(roomId);
+            if (record.getRoundNumber() == 1) {
+                // 第一局开局时房间积分重置为0
+                roomStateBroadcaster.scoresChanged(roomId);
+            }
         } catch (Exception e) {
             log.error("开始游戏失败", e);
         }
@@ -459,14 +508,14 @@ public class WebSocketMessageHandler {
      * 开始游戏（管理员手动开始，不检查准备状态）
      */
     @MessageMapping("/game/start")
-    public void startGame(@Payload Map<String, Object> payload) {
+    public void startGame(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long roomId = Long.valueOf(payload.get("roomId").toString());
             
             // 清除准备状态
-            roomReadyPlayers.remove(roomId);
+            roomStateBroadcaster.clearReady(roomId);
             if (roomReadyCountdownTimers.containsKey(roomId)) {
                 roomReadyCountdownTimers.get(roomId).cancel();
                 roomReadyCountdownTimers.remove(roomId);
@@ -485,10 +534,10 @@ public class WebSocketMessageHandler {
      * 投注
      */
     @MessageMapping("/game/bet")
-    public void placeBet(@Payload Map<String, Object> payload) {
+    public void placeBet(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long gameRecordId = Long.valueOf(payload.get("gameRecordId").toString());
             Integer betAmount = Integer.valueOf(payload.get("betAmount").toString());
 
@@ -526,69 +575,8 @@ public class WebSocketMessageHandler {
                         Thread.sleep(50);
                         Map<Long, List<CardTypeCalculator.Card>> cardsMap = gameService.dealCards(gameRecordId);
 
-                        // 广播所有玩家的牌（每个玩家看到自己的4张正面+1张背面，其他玩家5张背面）
-                        Map<String, Object> broadcastData = new HashMap<>();
-                        Map<Long, Object> allPlayersCards = new HashMap<>();
-                        
-                        for (RoomPlayer player : players) {
-                            List<CardTypeCalculator.Card> playerCards = cardsMap.get(player.getUserId());
-                            if (playerCards != null) {
-                                Map<String, Object> cardData = new HashMap<>();
-                                // 自己的牌：4张正面 + 1张背面
-                                cardData.put("cards", playerCards.subList(0, 4)); // 前4张正面
-                                cardData.put("hiddenCard", playerCards.get(4)); // 第5张背面
-                                cardData.put("isSelf", false); // 标记是否为当前查看者
-                                allPlayersCards.put(player.getUserId(), cardData);
-                            }
-                        }
-                        
-                        broadcastData.put("cards", allPlayersCards);
-                        broadcastData.put("gameRecordId", gameRecordId);
-                        
-                        // 给每个玩家单独发送，标记自己的牌
-                        // 注意：由于没有配置Principal，使用广播方式，但每个玩家根据消息中的isSelf字段区分自己的牌
-                        for (RoomPlayer player : players) {
-                            Map<String, Object> playerDealData = new HashMap<>();
-                            Map<Long, Object> playerCardsMap = new HashMap<>();
-                            
-                            // 遍历所有玩家
-                            for (RoomPlayer p : players) {
-                                List<CardTypeCalculator.Card> pCards = cardsMap.get(p.getUserId());
-                                if (pCards != null) {
-                                    Map<String, Object> cardData = new HashMap<>();
-                                    if (p.getUserId().equals(player.getUserId())) {
-                                        // 自己的牌：4张正面 + 1张背面
-                                        cardData.put("cards", pCards.subList(0, 4));
-                                        cardData.put("hiddenCard", pCards.get(4));
-                                        cardData.put("isSelf", true);
-                                    } else {
-                                        // 其他玩家的牌：5张背面
-                                        cardData.put("cards", null);
-                                        cardData.put("hiddenCard", null);
-                                        cardData.put("isSelf", false);
-                                        cardData.put("backCount", 5); // 5张背面
-                                    }
-                                    playerCardsMap.put(p.getUserId(), cardData);
-                                }
-                            }
-                            
-                            playerDealData.put("cards", playerCardsMap);
-                            playerDealData.put("gameRecordId", gameRecordId);
-                            playerDealData.put("targetUserId", player.getUserId()); // 添加目标用户ID，方便前端识别
-                            
-                            // 直接使用广播方式发送发牌消息（因为点对点消息需要Principal配置，比较复杂）
-                            // 每个玩家根据targetUserId过滤自己的消息
-                            messagingTemplate.convertAndSend(
-                                "/topic/room/" + roomId + "/game/deal/user/" + player.getUserId(),
-                                ApiResponse.success(playerDealData)
-                            );
-                            log.info("发送发牌消息给用户（广播方式）: {}, 主题: /topic/room/{}/game/deal/user/{}", 
-                                player.getUserId(), roomId, player.getUserId());
-                        }
-                        
-                        // 广播发牌完成消息（通知所有玩家发牌阶段开始）
-                        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/deal", 
-                                ApiResponse.success(broadcastData));
+                        // 每个玩家看到自己的4张正面+1张背面，其他玩家5张背面
+                        sendDealPayloads(roomId, gameRecordId, cardsMap);
                         
                         // 发牌后启动开牌倒计时（10秒）
                         startRevealCountdown(gameRecordId, roomId);
@@ -609,10 +597,10 @@ public class WebSocketMessageHandler {
      * 发牌
      */
     @MessageMapping("/game/deal")
-    public void dealCards(@Payload Map<String, Object> payload) {
+    public void dealCards(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long gameRecordId = Long.valueOf(payload.get("gameRecordId").toString());
 
             // 检查权限（管理员或所有玩家投注后自动触发）
@@ -620,20 +608,7 @@ public class WebSocketMessageHandler {
             GameRecord record = gameService.getGameRecord(gameRecordId);
             Long roomId = record.getRoomId();
 
-            // 转换为前端需要的格式（只显示4张，隐藏1张）
-            Map<String, Object> data = new HashMap<>();
-            Map<Long, Object> playerCards = new HashMap<>();
-            for (Map.Entry<Long, List<CardTypeCalculator.Card>> entry : cardsMap.entrySet()) {
-                List<CardTypeCalculator.Card> cards = entry.getValue();
-                Map<String, Object> cardData = new HashMap<>();
-                cardData.put("cards", cards.subList(0, 4)); // 前4张
-                cardData.put("hiddenCard", cards.get(4)); // 第5张隐藏
-                playerCards.put(entry.getKey(), cardData);
-            }
-            data.put("cards", playerCards);
-
-            messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/deal",
-                    ApiResponse.success(data));
+            sendDealPayloads(roomId, gameRecordId, cardsMap);
         } catch (Exception e) {
             log.error("发牌失败", e);
             if (userId != null) {
@@ -646,10 +621,10 @@ public class WebSocketMessageHandler {
      * 开牌
      */
     @MessageMapping("/game/reveal")
-    public void revealCard(@Payload Map<String, Object> payload) {
+    public void revealCard(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long gameRecordId = Long.valueOf(payload.get("gameRecordId").toString());
 
             // 检查是否已经开牌
@@ -676,19 +651,8 @@ public class WebSocketMessageHandler {
             Map<Long, List<CardTypeCalculator.Card>> cardsMap = gameService.getCurrentGameCards(gameRecordId);
             List<CardTypeCalculator.Card> playerCards = cardsMap.get(userId);
             
-            // 计算牌型
-            CardType cardType = CardTypeCalculator.calculateCardType(playerCards, enabledTypesSet);
-            
-            // 计算牌型分组（用于前端显示）
-            Map<String, List<CardTypeCalculator.Card>> cardGroups = CardTypeCalculator.getCardGroups(playerCards);
-
             // 构建开牌数据：包含5张牌、牌型信息和分组信息
-            Map<String, Object> revealData = new HashMap<>();
-            revealData.put("userId", userId);
-            revealData.put("cards", playerCards); // 完整的5张牌
-            revealData.put("cardType", cardType.getName()); // 牌型名称
-            revealData.put("multiplier", cardType.getMultiplier()); // 赔率
-            revealData.put("cardGroups", cardGroups); // 牌型分组（group1: 3张, group2: 2张）
+            Map<String, Object> revealData = GameStateTracker.revealData(userId, playerCards, enabledTypesSet);
             revealData.put("autoRevealed", false); // 手动开牌
 
             // 广播给所有玩家（包括自己）
@@ -731,24 +695,30 @@ public class WebSocketMessageHandler {
      * 结算
      */
     @MessageMapping("/game/settle")
-    public void settleRound(@Payload Map<String, Object> payload) {
+    public void settleRound(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long gameRecordId = Long.valueOf(payload.get("gameRecordId").toString());
 
-            Map<Long, GameDetail> details = gameService.settleRound(gameRecordId);
+            GameService.SettleResult result = gameService.settleRound(gameRecordId);
+            if (!result.settledNow()) {
+                // 已由其他入口结算并广播过，不再重复推送
+                log.info("对局 {} 已结算，忽略重复的结算请求 - 用户ID: {}", gameRecordId, userId);
+                return;
+            }
             GameRecord record = gameService.getGameRecord(gameRecordId);
             Long roomId = record.getRoomId();
 
             Map<String, Object> data = new HashMap<>();
-            data.put("details", details);
+            data.put("details", result.details());
             data.put("gameRecord", record);
 
             messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/settle",
                     ApiResponse.success(data));
 
-            broadcastRoomUpdate(roomId);
+            roomStateBroadcaster.roomChanged(roomId);
+            roomStateBroadcaster.scoresChanged(roomId);
         } catch (Exception e) {
             log.error("结算失败", e);
             if (userId != null) {
@@ -761,26 +731,14 @@ public class WebSocketMessageHandler {
      * 心跳消息处理
      */
     @MessageMapping("/heartbeat")
-    public void heartbeat(@Payload Map<String, Object> payload, org.springframework.messaging.Message<?> message) {
+    public void heartbeat(@Payload Map<String, Object> payload, org.springframework.messaging.Message<?> message, Principal principal) {
         try {
             // 从消息头中获取sessionId
             StompHeaderAccessor headerAccessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
             String sessionId = headerAccessor != null ? headerAccessor.getSessionId() : null;
             
-            // 从sessionUserMap中获取userId（如果sessionId存在）
-            Long userId = null;
-            if (sessionId != null) {
-                userId = webSocketEventListener.getUserIdBySessionId(sessionId);
-            }
-            
-            // 如果无法从session获取userId，尝试从payload获取（兼容旧版本）
-            if (userId == null) {
-                try {
-                    userId = getUserIdFromMessage(payload);
-                } catch (Exception e) {
-                    log.debug("心跳消息中无法获取userId，sessionId: {}", sessionId);
-                }
-            }
+            // 用户ID来自连接时绑定的Principal
+            Long userId = principal != null ? StompAuthenticator.getUserId(principal) : null;
             
             // 心跳消息只需要确认连接仍然活跃
             // 不需要做任何操作，只要收到消息就说明连接正常
@@ -800,10 +758,10 @@ public class WebSocketMessageHandler {
      * 提前结算
      */
     @MessageMapping("/game/finish")
-    public void finishGame(@Payload Map<String, Object> payload) {
+    public void finishGame(@Payload Map<String, Object> payload, Principal principal) {
         Long userId = null;
         try {
-            userId = getUserIdFromMessage(payload);
+            userId = StompAuthenticator.getUserId(principal);
             Long roomId = Long.valueOf(payload.get("roomId").toString());
 
             gameService.finishGame(roomId, userId);
@@ -814,7 +772,7 @@ public class WebSocketMessageHandler {
             messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/finish",
                     ApiResponse.success(data));
 
-            broadcastRoomUpdate(roomId);
+            roomStateBroadcaster.roomChanged(roomId);
         } catch (Exception e) {
             log.error("提前结算失败", e);
             if (userId != null) {
@@ -823,23 +781,33 @@ public class WebSocketMessageHandler {
         }
     }
 
-    private void broadcastRoomUpdate(Long roomId) {
-        Room room = roomService.getRoom(roomId);
-        // 获取玩家列表，并填充在线状态
-        List<RoomPlayer> players = roomService.getRoomPlayers(roomId, webSocketEventListener::isUserOnline);
-        
-        // 填充准备状态
-        Set<Long> readyPlayers = roomReadyPlayers.getOrDefault(roomId, new HashSet<>());
-        for (RoomPlayer player : players) {
-            player.setIsReady(readyPlayers.contains(player.getUserId()));
+    /**
+     * 发送发牌消息：共享模板只序列化一次，给每个玩家拼入自己的手牌后单独发送；
+     * 房间广播只通知发牌阶段开始，不包含任何牌面
+     */
+    private void sendDealPayloads(Long roomId, Long gameRecordId, Map<Long, List<CardTypeCalculator.Card>> cardsMap) {
+        DealPayloads payloads = DealPayloads.prepare(objectMapper, gameRecordId, cardsMap.keySet());
+        for (Map.Entry<Long, List<CardTypeCalculator.Card>> entry : cardsMap.entrySet()) {
+            // 用户目标，只会解析到该玩家连接时绑定的会话
+            sendRawJson("/user/" + entry.getKey() + "/queue/game/deal",
+                    payloads.forPlayer(entry.getKey(), entry.getValue()));
         }
+        log.info("发送发牌消息 - 房间ID: {}, 对局ID: {}, 玩家数: {}", roomId, gameRecordId, cardsMap.size());
 
         Map<String, Object> data = new HashMap<>();
-        data.put("room", room);
-        data.put("players", players);
+        data.put("gameRecordId", gameRecordId);
+        data.put("playerIds", cardsMap.keySet());
+        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/deal", ApiResponse.success(data));
+    }
 
-        messagingTemplate.convertAndSend("/topic/room/" + roomId + "/update",
-                ApiResponse.success(data));
+    /**
+     * 发送已序列化好的JSON消息（不再经过消息转换器）
+     */
+    private void sendRawJson(String destination, byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
     }
 
     private void sendSuccess(Long userId, String message, Object data) {
@@ -901,6 +869,7 @@ public class WebSocketMessageHandler {
         };
         timer.scheduleAtFixedRate(task, 1000, 1000); // 每秒执行一次
         revealCountdownTimers.put(gameRecordId, timer);
+        gameStateTracker.revealCountdownStarted(roomId, gameRecordId, 10);
     }
     
     /**
@@ -927,19 +896,8 @@ public class WebSocketMessageHandler {
                 Map<Long, List<CardTypeCalculator.Card>> cardsMap = gameService.getCurrentGameCards(gameRecordId);
                 List<CardTypeCalculator.Card> playerCards = cardsMap.get(userId);
                 
-                // 计算牌型
-                CardType cardType = CardTypeCalculator.calculateCardType(playerCards, enabledTypesSet);
-                
-                // 计算牌型分组
-                Map<String, List<CardTypeCalculator.Card>> cardGroups = CardTypeCalculator.getCardGroups(playerCards);
-                
                 // 构建开牌数据
-                Map<String, Object> revealData = new HashMap<>();
-                revealData.put("userId", userId);
-                revealData.put("cards", playerCards);
-                revealData.put("cardType", cardType.getName());
-                revealData.put("multiplier", cardType.getMultiplier());
-                revealData.put("cardGroups", cardGroups);
+                Map<String, Object> revealData = GameStateTracker.revealData(userId, playerCards, enabledTypesSet);
                 revealData.put("autoRevealed", true); // 标记为自动开牌
                 
                 // 广播开牌消息
@@ -983,6 +941,7 @@ public class WebSocketMessageHandler {
         displayData.put("gameRecordId", gameRecordId);
         messagingTemplate.convertAndSend("/topic/room/" + roomId + "/game/card/display",
                 ApiResponse.success(displayData));
+        gameStateTracker.displayStarted(roomId, gameRecordId, 8);
         
         // 8秒后结算
         final Long finalRoomId = roomId;
@@ -991,22 +950,26 @@ public class WebSocketMessageHandler {
                 Thread.sleep(8000); // 8秒展示时间
                 
                 // 执行结算
-                Map<Long, GameDetail> details = gameService.settleRound(gameRecordId);
+                GameService.SettleResult result = gameService.settleRound(gameRecordId);
+                // 清除开牌状态
+                revealedPlayers.remove(gameRecordId);
+                if (!result.settledNow()) {
+                    // 已由其他入口结算并广播过，不再重复推送
+                    return;
+                }
                 GameRecord settledRecord = gameService.getGameRecord(gameRecordId);
                 Room settledRoom = roomService.getRoom(finalRoomId);
                 
                 Map<String, Object> settleData = new HashMap<>();
-                settleData.put("details", details);
+                settleData.put("details", result.details());
                 settleData.put("gameRecord", settledRecord);
                 settleData.put("roomFinished", settledRoom != null && settledRoom.getCurrentRound() >= settledRoom.getMaxRounds());
                 
                 messagingTemplate.convertAndSend("/topic/room/" + finalRoomId + "/game/settle",
                         ApiResponse.success(settleData));
                 
-                broadcastRoomUpdate(finalRoomId);
-                
-                // 清除开牌状态
-                revealedPlayers.remove(gameRecordId);
+                roomStateBroadcaster.roomChanged(finalRoomId);
+                roomStateBroadcaster.scoresChanged(finalRoomId);
             } catch (Exception e) {
                 log.error("结算失败", e);
             }
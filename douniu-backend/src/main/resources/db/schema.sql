@@ -26,6 +26,7 @@ CREATE TABLE IF NOT EXISTS `room` (
     `current_round` INT DEFAULT 0 COMMENT '当前局数',
     `enabled_card_types` VARCHAR(255) DEFAULT NULL COMMENT '启用的牌型（JSON数组）',
     `status` TINYINT DEFAULT 0 COMMENT '状态：0-等待中，1-游戏中，2-已结束',
+    `version` INT DEFAULT 0 COMMENT '乐观锁版本号',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX `idx_room_code` (`room_code`),
@@ -54,10 +55,14 @@ CREATE TABLE IF NOT EXISTS `game_record` (
     `room_id` BIGINT NOT NULL COMMENT '房间ID',
     `round_number` INT NOT NULL COMMENT '局数',
     `dealer_id` BIGINT NOT NULL COMMENT '庄家ID',
-    `status` TINYINT DEFAULT 0 COMMENT '状态：0-进行中，1-已结算',
+    `status` TINYINT DEFAULT 0 COMMENT '状态：0-进行中，1-已结算，2-结算中，3-已取消',
+    `version` INT DEFAULT 0 COMMENT '乐观锁版本号',
     `start_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '开始时间',
     `end_time` DATETIME DEFAULT NULL COMMENT '结束时间',
-    INDEX `idx_room_id` (`room_id`),
+    INDEX `idx_room_status` (`room_id`, `status`),
+    INDEX `idx_room_round` (`room_id`, `round_number`),
+    INDEX `idx_start_time` (`start_time`),
+    INDEX `idx_status_end_time` (`status`, `end_time`),
     INDEX `idx_dealer_id` (`dealer_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对局记录表';
 
@@ -69,11 +74,41 @@ CREATE TABLE IF NOT EXISTS `game_detail` (
     `seat_number` INT NOT NULL COMMENT '座位号',
     `bet_amount` INT NOT NULL COMMENT '投注额',
     `cards` VARCHAR(50) NOT NULL COMMENT '牌面（JSON字符串）',
-    `card_type` VARCHAR(20) NOT NULL COMMENT '牌型',
-    `multiplier` INT NOT NULL COMMENT '赔率',
+    `card_type` TINYINT NOT NULL COMMENT '牌型编码：0-无牛，1~9-牛1~牛9，10-牛牛，11-顺子，12-五花牛，13-炸弹牛，14-五小牛（名称和赔率由CardType解析）',
+    `strength` INT NOT NULL COMMENT '牌力值：牌型编码×64+最大单牌值',
     `score_change` INT NOT NULL COMMENT '积分变化',
     `is_winner` TINYINT DEFAULT 0 COMMENT '是否获胜：0-否，1-是',
-    INDEX `idx_game_record_id` (`game_record_id`),
-    INDEX `idx_user_id` (`user_id`)
+    UNIQUE KEY `uk_record_user` (`game_record_id`, `user_id`),
+    INDEX `idx_game_record_strength` (`game_record_id`, `strength`),
+    INDEX `idx_user_record` (`user_id`, `game_record_id`, `score_change`),
+    INDEX `idx_user_card_type` (`user_id`, `card_type`),
+    INDEX `idx_card_type_record` (`card_type`, `game_record_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='对局详情表';
 
+-- 房间归档索引表（已结算的旧对局归档到本地压缩列式文件后，记录房间对应的归档文件）
+CREATE TABLE IF NOT EXISTS `room_archive` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT 'ID',
+    `room_id` BIGINT NOT NULL COMMENT '房间ID',
+    `archive_date` DATE NOT NULL COMMENT '分区日期（对局开始日期）',
+    `file_path` VARCHAR(255) NOT NULL COMMENT '归档文件路径（相对归档目录）',
+    `min_record_id` BIGINT NOT NULL COMMENT '文件中该房间的最小对局ID',
+    `max_record_id` BIGINT NOT NULL COMMENT '文件中该房间的最大对局ID',
+    `round_count` INT NOT NULL COMMENT '文件中该房间的对局数',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_room_id` (`room_id`),
+    INDEX `idx_record_range` (`min_record_id`, `max_record_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='房间归档索引表';
+
+-- 用户房间战绩汇总表（结算时增量更新，"我的房间"按主键直接读取）
+CREATE TABLE IF NOT EXISTS `user_room_summary` (
+    `user_id` BIGINT NOT NULL COMMENT '用户ID',
+    `room_id` BIGINT NOT NULL COMMENT '房间ID',
+    `rounds_played` INT NOT NULL DEFAULT 0 COMMENT '已结算局数',
+    `total_profit` INT NOT NULL DEFAULT 0 COMMENT '总盈利',
+    `wins` INT NOT NULL DEFAULT 0 COMMENT '获胜局数',
+    `best_card_type` TINYINT NOT NULL DEFAULT 0 COMMENT '最大牌型编码',
+    `best_strength` INT NOT NULL DEFAULT 0 COMMENT '最大牌力值',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`user_id`, `room_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户房间战绩汇总表';
+
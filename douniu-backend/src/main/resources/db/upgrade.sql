@@ -0,0 +1,98 @@
+-- 已有数据库升级脚本（从初始版本的表结构升级到当前 schema.sql）
+--
+-- schema.sql 使用 CREATE TABLE IF NOT EXISTS，对已经存在的表不会生效，已有数据库需要执行本脚本：
+--   1. 先备份数据库
+--   2. 执行 schema.sql，创建新增的表（room_archive、user_room_summary），已有的表不受影响
+--   3. 执行本脚本（只能执行一次；执行前停止服务）
+--
+-- 需要 MySQL 8.0+（牌力值回填使用 JSON_TABLE）
+
+USE douniu;
+
+-- ========== 房间表：乐观锁版本号 ==========
+ALTER TABLE `room`
+    ADD COLUMN `version` INT DEFAULT 0 COMMENT '乐观锁版本号' AFTER `status`;
+
+-- ========== 对局记录表：乐观锁版本号、状态（2-结算中，3-已取消）和索引 ==========
+ALTER TABLE `game_record`
+    MODIFY COLUMN `status` TINYINT DEFAULT 0 COMMENT '状态：0-进行中，1-已结算，2-结算中，3-已取消',
+    ADD COLUMN `version` INT DEFAULT 0 COMMENT '乐观锁版本号' AFTER `status`,
+    DROP INDEX `idx_room_id`,
+    ADD INDEX `idx_room_status` (`room_id`, `status`),
+    ADD INDEX `idx_room_round` (`room_id`, `round_number`),
+    ADD INDEX `idx_start_time` (`start_time`),
+    ADD INDEX `idx_status_end_time` (`status`, `end_time`);
+
+-- ========== 对局详情表：去重 ==========
+-- 旧版本并发结算可能为同一局同一用户写入多条详情，添加唯一键前只保留最早的一条。
+-- 重复的详情对应的积分也重复结算过，删除前先查看，需要时据此人工修正 user.balance：
+SELECT d.game_record_id, d.user_id, COUNT(*) AS row_count, SUM(d.score_change) AS total_score_change
+FROM game_detail d
+GROUP BY d.game_record_id, d.user_id
+HAVING COUNT(*) > 1;
+
+DELETE d1 FROM game_detail d1
+JOIN game_detail d2 ON d2.game_record_id = d1.game_record_id AND d2.user_id = d1.user_id AND d2.id < d1.id;
+
+-- ========== 对局详情表：牌型名称转换为编码，计算牌力值 ==========
+ALTER TABLE `game_detail`
+    ADD COLUMN `card_type_code` TINYINT DEFAULT NULL AFTER `card_type`,
+    ADD COLUMN `strength` INT DEFAULT NULL AFTER `card_type_code`;
+
+-- 牌型编码与 CardType 枚举一致
+UPDATE game_detail SET card_type_code = CASE card_type
+    WHEN '五小牛' THEN 14
+    WHEN '炸弹牛' THEN 13
+    WHEN '五花牛' THEN 12
+    WHEN '顺子' THEN 11
+    WHEN '牛牛' THEN 10
+    WHEN '牛9' THEN 9
+    WHEN '牛8' THEN 8
+    WHEN '牛7' THEN 7
+    WHEN '牛6' THEN 6
+    WHEN '牛5' THEN 5
+    WHEN '牛4' THEN 4
+    WHEN '牛3' THEN 3
+    WHEN '牛2' THEN 2
+    WHEN '牛1' THEN 1
+    WHEN '无牛' THEN 0
+END;
+
+-- 牌力值 = 牌型编码 × 64 + 最大单牌值（点数 × 4 + 3 - 花色，黑桃最大），与 CardTypeCalculator.calculateStrength 一致
+UPDATE game_detail d
+JOIN (
+    SELECT d2.id, MAX(c.card_rank * 4 + 3 - c.suit) AS top_card
+    FROM game_detail d2,
+         JSON_TABLE(d2.cards, '$[*]' COLUMNS (suit INT PATH '$.suit', card_rank INT PATH '$.rank')) c
+    GROUP BY d2.id
+) t ON t.id = d.id
+SET d.strength = d.card_type_code * 64 + t.top_card;
+
+-- 检查：以下查询应返回0行，否则存在无法识别的牌型名称或牌面，需先处理再继续
+SELECT id, game_record_id, user_id, card_type, cards
+FROM game_detail
+WHERE card_type_code IS NULL OR strength IS NULL;
+
+-- 名称和赔率改由 CardType 解析，删除旧列
+ALTER TABLE `game_detail`
+    DROP COLUMN `card_type`,
+    DROP COLUMN `multiplier`,
+    CHANGE COLUMN `card_type_code` `card_type` TINYINT NOT NULL COMMENT '牌型编码：0-无牛，1~9-牛1~牛9，10-牛牛，11-顺子，12-五花牛，13-炸弹牛，14-五小牛（名称和赔率由CardType解析）',
+    MODIFY COLUMN `strength` INT NOT NULL COMMENT '牌力值：牌型编码×64+最大单牌值';
+
+ALTER TABLE `game_detail`
+    ADD UNIQUE KEY `uk_record_user` (`game_record_id`, `user_id`),
+    DROP INDEX `idx_game_record_id`,
+    DROP INDEX `idx_user_id`,
+    ADD INDEX `idx_game_record_strength` (`game_record_id`, `strength`),
+    ADD INDEX `idx_user_record` (`user_id`, `game_record_id`, `score_change`),
+    ADD INDEX `idx_user_card_type` (`user_id`, `card_type`),
+    ADD INDEX `idx_card_type_record` (`card_type`, `game_record_id`);
+
+-- ========== 用户房间战绩汇总：从历史对局回填 ==========
+INSERT INTO user_room_summary (user_id, room_id, rounds_played, total_profit, wins, best_card_type, best_strength)
+SELECT d.user_id, gr.room_id, COUNT(*), SUM(d.score_change), SUM(d.is_winner), MAX(d.strength) DIV 64, MAX(d.strength)
+FROM game_detail d
+JOIN game_record gr ON gr.id = d.game_record_id
+WHERE gr.status = 1
+GROUP BY d.user_id, gr.room_id;
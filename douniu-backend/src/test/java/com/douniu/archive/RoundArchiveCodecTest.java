@@ -0,0 +1,78 @@
+package com.douniu.archive;
+
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.GameRecord;
+import com.douniu.enums.CardType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对局归档文件编解码测试类
+ */
+@DisplayName("对局归档文件测试")
+class RoundArchiveCodecTest {
+
+    @Test
+    @DisplayName("测试写入后读取内容一致")
+    void testRoundTrip() throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        List<GameDetail> details = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 20, 0, 0);
+        for (int round = 1; round <= 20; round++) {
+            GameRecord record = new GameRecord();
+            record.setId(1000L + round);
+            record.setRoomId(7L);
+            record.setRoundNumber(round);
+            record.setDealerId(1L);
+            record.setStatus(1);
+            record.setStartTime(start.plusMinutes(round));
+            record.setEndTime(round == 20 ? null : start.plusMinutes(round).plusSeconds(40));
+            records.add(record);
+
+            for (long userId = 1; userId <= 3; userId++) {
+                GameDetail detail = new GameDetail();
+                detail.setId(record.getId() * 10 + userId);
+                detail.setGameRecordId(record.getId());
+                detail.setUserId(userId);
+                detail.setSeatNumber((int) userId);
+                detail.setBetAmount(userId == 1 ? 0 : 50);
+                detail.setCards("[{\"rank\":13,\"suit\":0}]");
+                detail.setCardTypeCode(CardType.NIU_NIU.getCode());
+                detail.setStrength(CardType.NIU_NIU.getCode() * 64 + 55);
+                detail.setScoreChange(userId == 1 ? -100 : 50);
+                detail.setIsWinner(userId == 1 ? 0 : 1);
+                details.add(detail);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RoundArchiveCodec.write(new RoundArchiveCodec.Partition(records, details), out);
+        RoundArchiveCodec.Partition partition = RoundArchiveCodec.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(records, partition.getRecords());
+        assertEquals(details.size(), partition.getDetails().size());
+        GameDetail first = partition.getDetails().get(0);
+        assertEquals(details.get(0), first);
+        assertEquals("牛牛", first.getCardType());
+        assertNull(partition.getRecords().get(19).getEndTime());
+    }
+
+    @Test
+    @DisplayName("测试非归档文件被拒绝")
+    void testRejectInvalidFile() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (java.util.zip.GZIPOutputStream gzip = new java.util.zip.GZIPOutputStream(out)) {
+            gzip.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        }
+        assertThrows(IOException.class, () -> RoundArchiveCodec.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+}
@@ -0,0 +1,70 @@
+package com.douniu.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 已结算对局缓存测试类
+ */
+@DisplayName("已结算对局缓存测试")
+class SettledRoundCacheTest {
+
+    @Test
+    @DisplayName("测试超过内存上限时淘汰最久未访问的对局")
+    void testEvictByBytes() {
+        SettledRoundCache cache = new SettledRoundCache(100);
+        cache.put(1L, new byte[40]);
+        cache.put(2L, new byte[40]);
+        assertNotNull(cache.get(1L)); // 访问1，2变为最久未访问
+        cache.put(3L, new byte[40]);
+
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(1L));
+        assertNotNull(cache.get(3L));
+        assertEquals(80, cache.getTotalBytes());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("测试超过上限的单个响应不缓存")
+    void testSkipOversized() {
+        SettledRoundCache cache = new SettledRoundCache(10);
+        SettledRoundCache.CachedResponse response = cache.put(1L, new byte[11]);
+
+        assertNotNull(response.etag());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("测试强ETag与If-None-Match匹配")
+    void testEtag() {
+        byte[] body = "{\"code\":200}".getBytes(StandardCharsets.UTF_8);
+        SettledRoundCache.CachedResponse response = new SettledRoundCache(1024).put(1L, body);
+
+        assertEquals(SettledRoundCache.etagOf(body.clone()), response.etag());
+        assertTrue(response.etag().startsWith("\"") && response.etag().endsWith("\""));
+        assertTrue(response.matches(response.etag()));
+        assertTrue(response.matches("\"other\", " + response.etag()));
+        assertTrue(response.matches("*"));
+        assertFalse(response.matches("\"other\""));
+        assertFalse(response.matches(null));
+    }
+
+    @Test
+    @DisplayName("测试压缩改写的弱ETag按弱比较匹配")
+    void testWeakEtag() {
+        SettledRoundCache.CachedResponse response = new SettledRoundCache(1024).put(1L, new byte[]{1, 2, 3});
+
+        assertTrue(response.matches("W/" + response.etag()));
+        assertTrue(response.matches("\"other\", W/" + response.etag()));
+        assertFalse(response.matches("W/\"other\""));
+
+        SettledRoundCache.CachedResponse weak = new SettledRoundCache.CachedResponse(response.body(), "W/" + response.etag());
+        assertTrue(weak.matches(response.etag()));
+        assertTrue(weak.matches("W/" + response.etag()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.douniu.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 带过期时间的LRU缓存测试类
+ */
+@DisplayName("LRU缓存测试")
+class TtlLruCacheTest {
+
+    @Test
+    @DisplayName("测试超过容量时淘汰最久未访问的条目")
+    void testEvictLeastRecentlyUsed() {
+        TtlLruCache<Long, String> cache = new TtlLruCache<>(2, 60_000);
+        cache.put(1L, "a");
+        cache.put(2L, "b");
+        assertEquals("a", cache.get(1L)); // 访问1，2变为最久未访问
+        cache.put(3L, "c");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2L));
+        assertEquals("a", cache.get(1L));
+        assertEquals("c", cache.get(3L));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("测试条目过期后按未命中处理")
+    void testExpire() {
+        AtomicLong now = new AtomicLong();
+        TtlLruCache<Long, String> cache = new TtlLruCache<>(10, 1000, now::get);
+        cache.put(1L, "a");
+
+        now.set(999_000_000L);
+        assertEquals("a", cache.get(1L));
+        now.set(1_000_000_000L);
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("测试命中统计和失效")
+    void testStatsAndInvalidate() {
+        TtlLruCache<Long, String> cache = new TtlLruCache<>(10, 60_000);
+        cache.put(1L, "a");
+        cache.get(1L);
+        cache.get(2L);
+        cache.invalidate(1L);
+        cache.get(1L);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+    }
+}
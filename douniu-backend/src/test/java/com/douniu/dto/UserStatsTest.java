@@ -0,0 +1,66 @@
+package com.douniu.dto;
+
+import com.douniu.entity.GameDetail;
+import com.douniu.enums.CardType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户统计测试类
+ */
+@DisplayName("用户统计测试")
+class UserStatsTest {
+
+    @Test
+    @DisplayName("测试累加计数器后组装统计结果")
+    void testAccumulate() {
+        Map<String, Long> counters = new HashMap<>();
+        // 坐庄赢20（牛牛），闲家输10（牛5），闲家赢30（牛牛）
+        add(counters, UserStats.increments(detail(CardType.NIU_NIU, 20, 1), true));
+        add(counters, UserStats.increments(detail(CardType.NIU_5, -10, 0), false));
+        add(counters, UserStats.increments(detail(CardType.NIU_NIU, 30, 1), false));
+
+        UserStats stats = UserStats.fromCounters(1L, counters);
+        assertEquals(3, stats.getRounds());
+        assertEquals(2, stats.getWins());
+        assertEquals(2.0 / 3, stats.getWinRate(), 1e-9);
+        assertEquals(1, stats.getDealerRounds());
+        assertEquals(20, stats.getDealerProfit());
+        assertEquals(2, stats.getPlayerRounds());
+        assertEquals(20, stats.getPlayerProfit());
+        assertEquals(40, stats.getTotalProfit());
+
+        // 牌型分布按牌型从大到小
+        assertEquals(2, stats.getCardTypes().size());
+        assertEquals("牛牛", stats.getCardTypes().get(0).get("cardType"));
+        assertEquals(2L, stats.getCardTypes().get(0).get("count"));
+        assertEquals("牛5", stats.getCardTypes().get(1).get("cardType"));
+    }
+
+    @Test
+    @DisplayName("测试没有对局时的统计结果")
+    void testEmpty() {
+        UserStats stats = UserStats.fromCounters(1L, new HashMap<>());
+        assertEquals(0, stats.getRounds());
+        assertEquals(0, stats.getWinRate());
+        assertTrue(stats.getCardTypes().isEmpty());
+    }
+
+    private GameDetail detail(CardType cardType, int scoreChange, int isWinner) {
+        GameDetail detail = new GameDetail();
+        detail.setUserId(1L);
+        detail.setCardTypeCode(cardType.getCode());
+        detail.setScoreChange(scoreChange);
+        detail.setIsWinner(isWinner);
+        return detail;
+    }
+
+    private void add(Map<String, Long> counters, Map<String, Long> increments) {
+        increments.forEach((field, value) -> counters.merge(field, value, Long::sum));
+    }
+}
@@ -0,0 +1,42 @@
+package com.douniu.enums;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排行榜类型测试类
+ */
+@DisplayName("排行榜类型测试")
+class LeaderboardTypeTest {
+
+    @Test
+    @DisplayName("测试日榜和总榜的键")
+    void testDailyAndBalanceKey() {
+        LocalDate date = LocalDate.of(2026, 10, 19);
+        assertEquals("douniu:leaderboard:daily:2026-10-19", LeaderboardType.DAILY.key(date));
+        assertEquals("douniu:leaderboard:balance", LeaderboardType.BALANCE.key(date));
+        assertEquals(date, LeaderboardType.DAILY.periodStart(date));
+        assertNull(LeaderboardType.BALANCE.periodStart(date));
+    }
+
+    @Test
+    @DisplayName("测试周榜按ISO周划分（跨年）")
+    void testWeeklyKey() {
+        // 2026-01-01 是周四，属于2026年第1周；2027-01-01 是周五，属于2026年第53周
+        assertEquals("douniu:leaderboard:weekly:2026-W01", LeaderboardType.WEEKLY.key(LocalDate.of(2026, 1, 1)));
+        assertEquals("douniu:leaderboard:weekly:2026-W53", LeaderboardType.WEEKLY.key(LocalDate.of(2027, 1, 1)));
+        assertEquals(LocalDate.of(2026, 10, 19), LeaderboardType.WEEKLY.periodStart(LocalDate.of(2026, 10, 25)));
+        assertEquals(LeaderboardType.WEEKLY.key(LocalDate.of(2026, 10, 19)), LeaderboardType.WEEKLY.key(LocalDate.of(2026, 10, 25)));
+    }
+
+    @Test
+    @DisplayName("测试按编码查找")
+    void testFromCode() {
+        assertEquals(LeaderboardType.WEEKLY, LeaderboardType.fromCode("Weekly"));
+        assertNull(LeaderboardType.fromCode("monthly"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.douniu.journal;
+
+import com.douniu.enums.RoundEventType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对局事件日志测试类
+ */
+@DisplayName("对局事件日志测试")
+class RoundJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private RoundJournal open(int segmentSize) {
+        return new RoundJournal(true, dir.toString(), segmentSize, 10);
+    }
+
+    private List<RoundEvent> replay(RoundJournal journal) {
+        List<RoundEvent> events = new ArrayList<>();
+        journal.replay(events::add);
+        return events;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("测试重启后按顺序回放事件")
+    void testReplayAfterReopen() {
+        RoundJournal journal = open(4096);
+        journal.append(RoundEventType.STARTED, 1L, Map.of("roomId", 100L));
+        journal.append(RoundEventType.BET, 1L, Map.of("userId", 7L, "betAmount", 50));
+        journal.append(RoundEventType.REVEALED, 1L, Map.of("userId", 7L));
+        journal.close();
+
+        RoundJournal reopened = open(4096);
+        List<RoundEvent> events = replay(reopened);
+        assertEquals(3, events.size());
+        assertEquals(RoundEventType.STARTED, events.get(0).getType());
+        assertEquals(RoundEventType.BET, events.get(1).getType());
+        assertTrue(events.get(1).getPayload().contains("\"betAmount\":50"));
+        assertEquals(1L, events.get(2).getGameRecordId());
+
+        // 重新打开后继续在原日志段末尾追加
+        reopened.append(RoundEventType.SETTLED, 1L, null);
+        reopened.close();
+        List<RoundEvent> all = replay(open(4096));
+        assertEquals(4, all.size());
+        assertEquals(RoundEventType.SETTLED, all.get(3).getType());
+    }
+
+    @Test
+    @DisplayName("测试日志段滚动并删除已终止的日志段")
+    void testRotateAndDeleteTerminatedSegments() throws IOException {
+        RoundJournal journal = open(256);
+        // 对局1未结算，所在日志段必须保留
+        journal.append(RoundEventType.STARTED, 1L, Map.of("roomId", 100L));
+        for (long id = 2; id <= 20; id++) {
+            journal.append(RoundEventType.STARTED, id, Map.of("roomId", 100L));
+            journal.append(RoundEventType.SETTLED, id, null);
+        }
+        assertTrue(segmentCount() > 1);
+        List<RoundEvent> events = replay(journal);
+        assertEquals(RoundEventType.STARTED, events.get(0).getType());
+        assertEquals(1L, events.get(0).getGameRecordId());
+
+        // 对局1结算后，下一次滚动会删除之前的所有日志段
+        journal.append(RoundEventType.SETTLED, 1L, null);
+        for (long id = 21; id <= 30; id++) {
+            journal.append(RoundEventType.SETTLED, id, null);
+        }
+        assertEquals(1, segmentCount());
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("测试写入中途崩溃的记录被忽略")
+    void testTornRecordIgnored() throws IOException {
+        RoundJournal journal = open(4096);
+        journal.append(RoundEventType.STARTED, 1L, Map.of("roomId", 100L));
+        journal.append(RoundEventType.BET, 1L, Map.of("userId", 7L, "betAmount", 50));
+        journal.close();
+
+        // 破坏最后一条记录的数据，模拟写入到一半时进程退出
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        int firstLength;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            firstLength = header.flip().getInt();
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), 4 + firstLength + 4 + 30);
+        }
+
+        RoundJournal reopened = open(4096);
+        List<RoundEvent> events = replay(reopened);
+        assertEquals(1, events.size());
+        assertEquals(RoundEventType.STARTED, events.get(0).getType());
+
+        // 损坏记录之后的位置会被新记录覆盖
+        reopened.append(RoundEventType.REVEALED, 1L, Map.of("userId", 7L));
+        reopened.close();
+        List<RoundEvent> after = replay(open(4096));
+        assertEquals(2, after.size());
+        assertEquals(RoundEventType.REVEALED, after.get(1).getType());
+    }
+}
@@ -0,0 +1,167 @@
+package com.douniu.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.douniu.entity.GameDetail;
+import com.douniu.entity.User;
+import com.douniu.enums.LeaderboardType;
+import com.douniu.mapper.GameDetailMapper;
+import com.douniu.mapper.UserMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 排行榜服务测试类（内存中的有序集合代替 Redis）
+ */
+@DisplayName("排行榜服务测试")
+class LeaderboardServiceTest {
+
+    private final InMemoryRedis redis = new InMemoryRedis();
+
+    @BeforeAll
+    static void initTableInfo() {
+        // 重建总积分榜使用 LambdaQueryWrapper，需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), User.class);
+    }
+
+    @Test
+    @DisplayName("测试重建期间结算的积分变化在替换后保留")
+    void testSettlementDuringRebuild() {
+        LeaderboardService[] service = new LeaderboardService[1];
+        int[] userQueries = {0};
+        // 第一批用户读取之后、替换总积分榜之前结算一局
+        UserMapper userMapper = mapper(UserMapper.class, "selectList", () -> {
+            if (userQueries[0]++ == 0) {
+                return List.of(user(1L, 100), user(2L, 50));
+            }
+            service[0].recordSettlement(List.of(detail(1L, 10), detail(2L, -10)));
+            return List.of();
+        });
+        // 盈利统计已包含上面结算的对局
+        GameDetailMapper gameDetailMapper = mapper(GameDetailMapper.class, "sumProfitByUser",
+                () -> List.of(Map.of("userId", 1L, "profit", 40), Map.of("userId", 2L, "profit", -40)));
+        service[0] = new LeaderboardService(redis, userMapper, gameDetailMapper, null);
+
+        service[0].rebuild();
+
+        LocalDate today = LocalDate.now();
+        assertEquals(Map.of("1", 110.0, "2", 40.0), redis.zsets.get(LeaderboardType.BALANCE.key(today)));
+        assertEquals(Map.of("1", 40.0, "2", -40.0), redis.zsets.get(LeaderboardType.DAILY.key(today)));
+        assertEquals(Map.of("1", 40.0, "2", -40.0), redis.zsets.get(LeaderboardType.WEEKLY.key(today)));
+        assertTrue(redis.zsets.keySet().stream().noneMatch(key -> key.endsWith(":rebuilding")));
+
+        // 重建结束后只写正式键
+        service[0].recordSettlement(List.of(detail(1L, 5)));
+        assertEquals(115.0, redis.zsets.get(LeaderboardType.BALANCE.key(today)).get("1"));
+        assertTrue(redis.zsets.keySet().stream().noneMatch(key -> key.endsWith(":rebuilding")));
+    }
+
+    private static User user(Long id, int balance) {
+        User user = new User();
+        user.setId(id);
+        user.setBalance(balance);
+        return user;
+    }
+
+    private static GameDetail detail(Long userId, int scoreChange) {
+        GameDetail detail = new GameDetail();
+        detail.setUserId(userId);
+        detail.setScoreChange(scoreChange);
+        return detail;
+    }
+
+    /**
+     * 只实现一个查询方法的 Mapper
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T mapper(Class<T> type, String method, java.util.function.Supplier<Object> result) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+            if (m.getName().equals(method)) {
+                return result.get();
+            }
+            throw new UnsupportedOperationException(m.getName());
+        });
+    }
+
+    /**
+     * 内存中的有序集合，只支持排行榜用到的命令
+     */
+    private static class InMemoryRedis extends StringRedisTemplate {
+
+        final Map<String, Map<String, Double>> zsets = new HashMap<>();
+
+        @Override
+        public List<Object> executePipelined(RedisCallback<?> action) {
+            RedisZSetCommands zSetCommands = commands(RedisZSetCommands.class);
+            RedisKeyCommands keyCommands = commands(RedisKeyCommands.class);
+            action.doInRedis((RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{RedisConnection.class}, (proxy, m, args) -> switch (m.getName()) {
+                        case "zSetCommands" -> zSetCommands;
+                        case "keyCommands" -> keyCommands;
+                        default -> throw new UnsupportedOperationException(m.getName());
+                    }));
+            return List.of();
+        }
+
+        private <T> T commands(Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+                switch (m.getName()) {
+                    case "zIncrBy":
+                        zsets.computeIfAbsent(string(args[0]), k -> new HashMap<>()).merge(string(args[2]), (Double) args[1], Double::sum);
+                        return null;
+                    case "zAdd":
+                        zsets.computeIfAbsent(string(args[0]), k -> new HashMap<>()).put(string(args[2]), (Double) args[1]);
+                        return null;
+                    case "expire":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(m.getName());
+                }
+            }));
+        }
+
+        @Override
+        public Boolean hasKey(String key) {
+            return zsets.containsKey(key);
+        }
+
+        @Override
+        public Boolean delete(String key) {
+            return zsets.remove(key) != null;
+        }
+
+        @Override
+        public Long delete(Collection<String> keys) {
+            return keys.stream().filter(key -> zsets.remove(key) != null).count();
+        }
+
+        @Override
+        public void rename(String oldKey, String newKey) {
+            zsets.put(newKey, zsets.remove(oldKey));
+        }
+
+        @Override
+        public Boolean expire(String key, long timeout, TimeUnit unit) {
+            return zsets.containsKey(key);
+        }
+
+        private static String string(Object bytes) {
+            return new String((byte[]) bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -631,5 +631,44 @@ class CardTypeCalculatorTest {
         assertTrue(compare34 < 0, "梅花Q应该大于方块Q");
         assertTrue(compare14 < 0, "黑桃Q应该大于方块Q");
     }
+
+    @Test
+    @DisplayName("测试牌力值与比较结果一致")
+    void testStrengthMatchesCompare() {
+        Set<String> enabledTypes = getAllEnabledTypes();
+
+        // 牛牛：黑桃K最大
+        List<CardTypeCalculator.Card> niuNiu = Arrays.asList(
+            createCard(0, 13), createCard(1, 10), createCard(2, 11), createCard(3, 3), createCard(0, 7)
+        );
+        // 牛牛：红桃K最大
+        List<CardTypeCalculator.Card> niuNiu2 = Arrays.asList(
+            createCard(1, 13), createCard(0, 11), createCard(1, 12), createCard(2, 4), createCard(3, 6)
+        );
+        // 牛9
+        List<CardTypeCalculator.Card> niu9 = Arrays.asList(
+            createCard(2, 13), createCard(3, 10), createCard(1, 4), createCard(3, 6), createCard(2, 9)
+        );
+
+        CardType type1 = CardTypeCalculator.calculateCardType(niuNiu, enabledTypes);
+        CardType type2 = CardTypeCalculator.calculateCardType(niuNiu2, enabledTypes);
+        CardType type3 = CardTypeCalculator.calculateCardType(niu9, enabledTypes);
+        assertEquals(CardType.NIU_NIU, type1);
+        assertEquals(CardType.NIU_NIU, type2);
+        assertEquals(CardType.NIU_9, type3);
+
+        int strength1 = CardTypeCalculator.calculateStrength(type1, niuNiu);
+        int strength2 = CardTypeCalculator.calculateStrength(type2, niuNiu2);
+        int strength3 = CardTypeCalculator.calculateStrength(type3, niu9);
+
+        assertTrue(CardTypeCalculator.compareCardType(type1, niuNiu, type2, niuNiu2) < 0);
+        assertTrue(strength1 > strength2, "黑桃K牛牛的牌力值应该大于红桃K牛牛");
+        assertTrue(CardTypeCalculator.compareCardType(type3, niu9, type2, niuNiu2) > 0);
+        assertTrue(strength2 > strength3, "牛牛的牌力值应该大于牛9");
+
+        // 牌型编码可以还原牌型
+        assertEquals(CardType.NIU_NIU, CardType.fromCode(type1.getCode()));
+        assertEquals(type1.getCode(), strength1 / 64);
+    }
 }
 
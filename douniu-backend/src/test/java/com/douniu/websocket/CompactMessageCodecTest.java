@@ -0,0 +1,76 @@
+package com.douniu.websocket;
+
+import com.douniu.dto.ApiResponse;
+import com.douniu.utils.CardTypeCalculator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑消息编码测试类
+ */
+@DisplayName("紧凑消息编码测试")
+class CompactMessageCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试字典序号与别名的对应关系")
+    void testAlias() {
+        assertEquals("A", CompactMessageCodec.alias(0));
+        assertEquals("Z", CompactMessageCodec.alias(25));
+        assertEquals("AA", CompactMessageCodec.alias(26));
+        assertEquals("AZ", CompactMessageCodec.alias(51));
+        assertEquals("BA", CompactMessageCodec.alias(52));
+        assertEquals(CompactMessageCodec.KEYS.size(), new HashSet<>(CompactMessageCodec.KEYS).size());
+    }
+
+    @Test
+    @DisplayName("测试字段名替换为别名，牌压缩为整数，字典外的键原样保留")
+    void testEncode() throws Exception {
+        Map<String, Object> self = new LinkedHashMap<>();
+        self.put("userId", 7L);
+        self.put("cards", List.of(new CardTypeCalculator.Card(1, 12)));
+        self.put("hiddenCard", new CardTypeCalculator.Card(3, 1));
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("backCounts", Map.of("7", 5));
+        data.put("self", self);
+        data.put("unknownField", "x");
+        byte[] json = objectMapper.writeValueAsBytes(ApiResponse.success(data));
+
+        byte[] compact = CompactMessageCodec.encode(objectMapper, json);
+        JsonNode root = objectMapper.readTree(compact);
+
+        assertTrue(compact.length < json.length);
+        assertEquals(200, root.get(alias("code")).asInt());
+        JsonNode encodedData = root.get(alias("data"));
+        assertEquals(5, encodedData.get(alias("backCounts")).get("7").asInt());
+        assertEquals("x", encodedData.get("unknownField").asText());
+        JsonNode encodedSelf = encodedData.get(alias("self"));
+        assertEquals(7L, encodedSelf.get(alias("userId")).asLong());
+        assertEquals(1 * 16 + 12, encodedSelf.get(alias("cards")).get(0).asInt());
+        assertEquals(3 * 16 + 1, encodedSelf.get(alias("hiddenCard")).asInt());
+    }
+
+    @Test
+    @DisplayName("测试cards字段为字符串时不做压缩")
+    void testStringCardsUntouched() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(Map.of("cards", "[{\"suit\":1,\"rank\":2}]"));
+
+        JsonNode root = objectMapper.readTree(CompactMessageCodec.encode(objectMapper, json));
+
+        assertEquals("[{\"suit\":1,\"rank\":2}]", root.get(alias("cards")).asText());
+    }
+
+    private static String alias(String key) {
+        return CompactMessageCodec.alias(CompactMessageCodec.KEYS.indexOf(key));
+    }
+}
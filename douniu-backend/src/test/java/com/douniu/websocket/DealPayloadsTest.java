@@ -0,0 +1,64 @@
+package com.douniu.websocket;
+
+import com.douniu.utils.CardTypeCalculator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 发牌消息模板测试类
+ */
+@DisplayName("发牌消息模板测试")
+class DealPayloadsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("测试每个玩家的消息只包含自己的手牌和所有玩家的背面牌数")
+    void testForPlayerContainsOnlyOwnHand() throws Exception {
+        DealPayloads payloads = DealPayloads.prepare(objectMapper, 100L, List.of(1L, 2L, 3L));
+        List<CardTypeCalculator.Card> hand = List.of(
+                new CardTypeCalculator.Card(0, 1),
+                new CardTypeCalculator.Card(1, 2),
+                new CardTypeCalculator.Card(2, 3),
+                new CardTypeCalculator.Card(3, 4),
+                new CardTypeCalculator.Card(0, 13)
+        );
+
+        JsonNode message = objectMapper.readTree(payloads.forPlayer(2L, hand));
+
+        assertEquals(200, message.get("code").asInt());
+        JsonNode data = message.get("data");
+        assertEquals(100L, data.get("gameRecordId").asLong());
+        assertEquals(3, data.get("backCounts").size());
+        assertEquals(DealPayloads.BACK_COUNT, data.get("backCounts").get("1").asInt());
+        assertEquals(2L, data.get("self").get("userId").asLong());
+        assertEquals(4, data.get("self").get("cards").size());
+        assertEquals(13, data.get("self").get("hiddenCard").get("rank").asInt());
+    }
+
+    @Test
+    @DisplayName("测试同一模板为不同玩家拼入不同手牌")
+    void testTemplateReusedAcrossPlayers() throws Exception {
+        DealPayloads payloads = DealPayloads.prepare(objectMapper, 7L, List.of(1L, 2L));
+        List<CardTypeCalculator.Card> first = List.of(
+                new CardTypeCalculator.Card(0, 1), new CardTypeCalculator.Card(0, 2), new CardTypeCalculator.Card(0, 3),
+                new CardTypeCalculator.Card(0, 4), new CardTypeCalculator.Card(0, 5));
+        List<CardTypeCalculator.Card> second = List.of(
+                new CardTypeCalculator.Card(1, 6), new CardTypeCalculator.Card(1, 7), new CardTypeCalculator.Card(1, 8),
+                new CardTypeCalculator.Card(1, 9), new CardTypeCalculator.Card(1, 10));
+
+        JsonNode a = objectMapper.readTree(payloads.forPlayer(1L, first)).get("data").get("self");
+        JsonNode b = objectMapper.readTree(payloads.forPlayer(2L, second)).get("data").get("self");
+
+        assertEquals(5, a.get("hiddenCard").get("rank").asInt());
+        assertEquals(10, b.get("hiddenCard").get("rank").asInt());
+        assertEquals(1L, a.get("userId").asLong());
+        assertEquals(2L, b.get("userId").asLong());
+    }
+}
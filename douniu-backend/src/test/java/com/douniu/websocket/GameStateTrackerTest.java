@@ -0,0 +1,111 @@
+package com.douniu.websocket;
+
+import com.douniu.entity.GameRecord;
+import com.douniu.service.GameService;
+import com.douniu.utils.CardTypeCalculator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对局状态快照测试类
+ */
+@DisplayName("对局状态快照测试")
+class GameStateTrackerTest {
+
+    private static final List<CardTypeCalculator.Card> HAND_1 = List.of(
+            new CardTypeCalculator.Card(1, 1), new CardTypeCalculator.Card(1, 2), new CardTypeCalculator.Card(1, 3),
+            new CardTypeCalculator.Card(1, 4), new CardTypeCalculator.Card(1, 5));
+    private static final List<CardTypeCalculator.Card> HAND_2 = List.of(
+            new CardTypeCalculator.Card(2, 6), new CardTypeCalculator.Card(2, 7), new CardTypeCalculator.Card(2, 8),
+            new CardTypeCalculator.Card(2, 9), new CardTypeCalculator.Card(2, 10));
+
+    @Test
+    @DisplayName("测试没有进行中的对局时为等待状态")
+    void testWaiting() {
+        GameStateTracker.PhaseCountdown ready = new GameStateTracker.PhaseCountdown(null, GameStateTracker.WAITING,
+                System.currentTimeMillis() + 5000);
+
+        Map<String, Object> snapshot = GameStateTracker.buildSnapshot(1L, 1L, null, ready);
+
+        assertEquals(GameStateTracker.WAITING, snapshot.get("phase"));
+        assertEquals(5, snapshot.get("countdown"));
+        assertNull(snapshot.get("gameRecord"));
+    }
+
+    @Test
+    @DisplayName("测试快照只包含自己的手牌")
+    @SuppressWarnings("unchecked")
+    void testOnlyOwnHand() {
+        GameService.CurrentRound round = round(Set.of());
+
+        Map<String, Object> deal = (Map<String, Object>) GameStateTracker.buildSnapshot(1L, 1L, round, null).get("deal");
+        Map<String, Object> self = (Map<String, Object>) deal.get("self");
+        assertEquals(1L, self.get("userId"));
+        assertEquals(HAND_1.subList(0, 4), self.get("cards"));
+        assertEquals(HAND_1.get(4), self.get("hiddenCard"));
+        assertEquals(Map.of(1L, 5, 2L, 5), deal.get("backCounts"));
+
+        Map<String, Object> spectatorDeal = (Map<String, Object>) GameStateTracker.buildSnapshot(1L, 3L, round, null).get("deal");
+        assertNull(spectatorDeal.get("self"));
+    }
+
+    @Test
+    @DisplayName("测试投注、开牌和阶段变化")
+    @SuppressWarnings("unchecked")
+    void testPhases() {
+        GameService.CurrentRound round = round(Set.of(2L));
+        long deadline = System.currentTimeMillis() + 10000;
+
+        Map<String, Object> snapshot = GameStateTracker.buildSnapshot(1L, 1L, round,
+                new GameStateTracker.PhaseCountdown(100L, GameStateTracker.REVEALING, deadline));
+        assertEquals(GameStateTracker.REVEALING, snapshot.get("phase"));
+        assertEquals(Map.of(2L, 3), snapshot.get("bets"));
+        List<Map<String, Object>> reveals = (List<Map<String, Object>>) snapshot.get("reveals");
+        assertEquals(1, reveals.size());
+        assertEquals(2L, reveals.get(0).get("userId"));
+        assertEquals(HAND_2, reveals.get(0).get("cards"));
+        int countdown = (int) snapshot.get("countdown");
+        assertTrue(countdown > 0 && countdown <= 10);
+
+        snapshot = GameStateTracker.buildSnapshot(1L, 1L, round,
+                new GameStateTracker.PhaseCountdown(100L, GameStateTracker.DISPLAYING, deadline));
+        assertEquals(GameStateTracker.DISPLAYING, snapshot.get("phase"));
+
+        // 上一局的倒计时不影响当前对局
+        snapshot = GameStateTracker.buildSnapshot(1L, 1L, round,
+                new GameStateTracker.PhaseCountdown(99L, GameStateTracker.DISPLAYING, deadline));
+        assertEquals(GameStateTracker.REVEALING, snapshot.get("phase"));
+        assertEquals(0, snapshot.get("countdown"));
+    }
+
+    @Test
+    @DisplayName("测试未发牌时为投注阶段")
+    void testBetting() {
+        GameRecord record = record();
+        GameService.CurrentRound round = new GameService.CurrentRound(record, Map.of(2L, 3), null, Set.of(), Set.of());
+
+        Map<String, Object> snapshot = GameStateTracker.buildSnapshot(1L, 1L, round, null);
+
+        assertEquals(GameStateTracker.BETTING, snapshot.get("phase"));
+        assertEquals(record, snapshot.get("gameRecord"));
+        assertNull(snapshot.get("deal"));
+    }
+
+    private static GameService.CurrentRound round(Set<Long> revealed) {
+        return new GameService.CurrentRound(record(), Map.of(2L, 3), Map.of(1L, HAND_1, 2L, HAND_2), revealed, Set.of());
+    }
+
+    private static GameRecord record() {
+        GameRecord record = new GameRecord();
+        record.setId(100L);
+        record.setRoomId(1L);
+        record.setDealerId(1L);
+        return record;
+    }
+}
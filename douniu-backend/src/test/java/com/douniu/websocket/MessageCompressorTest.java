@@ -0,0 +1,39 @@
+package com.douniu.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WebSocket消息压缩测试类
+ */
+@DisplayName("WebSocket消息压缩测试")
+class MessageCompressorTest {
+
+    @Test
+    @DisplayName("测试压缩结果为Base64文本，解压后与原文一致")
+    void testCompressRoundTrip() throws Exception {
+        String json = "{\"code\":200,\"data\":{\"players\":[" + "{\"userId\":1,\"nickname\":\"玩家\",\"score\":0},".repeat(20) + "{}]}}";
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = MessageCompressor.compress(data, 6);
+
+        assertTrue(encoded.length < data.length);
+        byte[] deflated = Base64.getDecoder().decode(new String(encoded, StandardCharsets.US_ASCII));
+        Inflater inflater = new Inflater();
+        inflater.setInput(deflated);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        while (!inflater.finished()) {
+            out.write(buffer, 0, inflater.inflate(buffer));
+        }
+        inflater.end();
+        assertEquals(json, out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,79 @@
+package com.douniu.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 房间增量合并测试类
+ */
+@DisplayName("房间增量合并测试")
+class RoomDeltaBatchTest {
+
+    @Test
+    @DisplayName("测试同键增量原位覆盖，不改变与其他键的相对顺序")
+    void testSameKeyReplacedInPlace() {
+        RoomDeltaBatch batch = new RoomDeltaBatch();
+        batch.add("PLAYER:7", Map.of("type", "JOIN"));
+        batch.add("ONLINE:7", Map.of("type", "ONLINE"));
+        batch.add("ONLINE:7", Map.of("type", "OFFLINE"));
+        batch.add("ONLINE:7", Map.of("type", "ONLINE"));
+
+        assertEquals(List.of("JOIN", "ONLINE"), types(batch.drain()));
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试清除准备状态丢弃窗口内之前的准备增量")
+    void testReadyResetDropsEarlierReady() {
+        RoomDeltaBatch batch = new RoomDeltaBatch();
+        batch.add(RoomDeltaBatch.readyKey(1L), Map.of("type", "READY"));
+        batch.add(RoomDeltaBatch.readyKey(2L), Map.of("type", "READY"));
+        batch.add("ROOM", Map.of("type", "ROOM"));
+        batch.add(RoomDeltaBatch.READY_RESET, Map.of("type", "READY_RESET"));
+        batch.add(RoomDeltaBatch.readyKey(1L), Map.of("type", "READY"));
+
+        assertEquals(List.of("ROOM", "READY_RESET", "READY"), types(batch.drain()));
+    }
+
+    @Test
+    @DisplayName("测试重复清除准备状态只保留最后一次，且排在之后的准备增量之前")
+    void testRepeatedReadyReset() {
+        RoomDeltaBatch batch = new RoomDeltaBatch();
+        batch.add(RoomDeltaBatch.READY_RESET, Map.of("type", "READY_RESET"));
+        batch.add(RoomDeltaBatch.readyKey(1L), Map.of("type", "READY"));
+        batch.add(RoomDeltaBatch.READY_RESET, Map.of("type", "READY_RESET"));
+
+        assertEquals(List.of("READY_RESET"), types(batch.drain()));
+    }
+
+    @Test
+    @DisplayName("测试加入、离开后丢弃该玩家之前的准备和上下线增量")
+    void testPlayerChangeDropsStaleState() {
+        RoomDeltaBatch batch = new RoomDeltaBatch();
+        batch.add(RoomDeltaBatch.playerKey(7L), Map.of("type", "JOIN"));
+        batch.add(RoomDeltaBatch.readyKey(7L), Map.of("type", "READY"));
+        batch.add(RoomDeltaBatch.onlineKey(7L), Map.of("type", "OFFLINE"));
+        batch.add(RoomDeltaBatch.readyKey(8L), Map.of("type", "READY"));
+        batch.add(RoomDeltaBatch.playerKey(7L), Map.of("type", "LEAVE"));
+
+        assertEquals(List.of("READY", "LEAVE"), types(batch.drain()));
+
+        // 离开后重新加入：之前的准备不再生效，重新加入后的准备排在加入之后
+        batch.add(RoomDeltaBatch.playerKey(7L), Map.of("type", "LEAVE"));
+        batch.add(RoomDeltaBatch.readyKey(7L), Map.of("type", "READY"));
+        batch.add(RoomDeltaBatch.playerKey(7L), Map.of("type", "JOIN"));
+        batch.add(RoomDeltaBatch.readyKey(7L), Map.of("type", "READY"));
+
+        assertEquals(List.of("JOIN", "READY"), types(batch.drain()));
+    }
+
+    private static List<Object> types(List<Map<String, Object>> deltas) {
+        return deltas.stream().map(d -> d.get("type")).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,53 @@
+package com.douniu.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 房间消息补发缓冲测试类
+ */
+@DisplayName("房间消息补发缓冲测试")
+class RoomReplayBufferTest {
+
+    @Test
+    @DisplayName("测试补发客户端序号之后的消息")
+    void testSince() {
+        RoomReplayBuffer.RoomLog log = new RoomReplayBuffer.RoomLog(4, 100);
+        for (int i = 0; i < 3; i++) {
+            log.append("/topic/room/1/delta", new byte[]{(byte) i});
+        }
+
+        List<RoomReplayBuffer.Frame> frames = log.since(100);
+
+        assertEquals(102, log.getLastSeq());
+        assertEquals(List.of(101L, 102L), frames.stream().map(RoomReplayBuffer.Frame::seq).toList());
+        assertTrue(log.since(102).isEmpty());
+        assertEquals(3, log.since(99).size());
+    }
+
+    @Test
+    @DisplayName("测试消息已被覆盖或序号不属于当前序列时返回null")
+    void testGap() {
+        RoomReplayBuffer.RoomLog log = new RoomReplayBuffer.RoomLog(4, 100);
+        for (int i = 0; i < 6; i++) {
+            log.append("/topic/room/1/delta", new byte[0]);
+        }
+
+        assertEquals(4, log.since(101).size());
+        assertNull(log.since(100));
+        assertNull(log.since(106));
+    }
+
+    @Test
+    @DisplayName("测试从目标地址解析房间ID")
+    void testParseRoomId() {
+        assertEquals(12L, RoomReplayBuffer.parseRoomId("/topic/room/12/game/bet"));
+        assertEquals(12L, RoomReplayBuffer.parseRoomId("/topic/room/12"));
+        assertNull(RoomReplayBuffer.parseRoomId("/topic/lobby"));
+        assertNull(RoomReplayBuffer.parseRoomId("/topic/room/abc/delta"));
+    }
+}
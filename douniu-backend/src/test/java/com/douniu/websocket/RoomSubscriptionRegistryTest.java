@@ -0,0 +1,182 @@
+package com.douniu.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按目标地址索引的订阅表测试类
+ */
+@DisplayName("订阅表测试")
+class RoomSubscriptionRegistryTest {
+
+    private static final List<String> ROOM_TOPICS = List.of("delta", "game/start", "game/bet", "game/deal", "game/reveal",
+            "game/reveal/countdown", "game/settle", "game/finish", "game/dealer", "game/ready", "chat", "leaderboard");
+
+    @Test
+    @DisplayName("测试只返回同一地址的订阅者")
+    void testFindByDestination() {
+        RoomSubscriptionRegistry registry = new RoomSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/room/1/delta"));
+        registry.registerSubscription(subscribe("s1", "sub-1", "/topic/room/1/game/bet"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/room/1/delta"));
+        registry.registerSubscription(subscribe("s3", "sub-0", "/topic/room/2/delta"));
+
+        MultiValueMap<String, String> result = registry.findSubscriptions(message("/topic/room/1/delta"));
+
+        assertEquals(2, result.size());
+        assertEquals(List.of("sub-0"), result.get("s1"));
+        assertEquals(List.of("sub-0"), result.get("s2"));
+        assertTrue(registry.findSubscriptions(message("/topic/room/3/delta")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试取消订阅和断开连接后清理订阅")
+    void testUnregister() {
+        RoomSubscriptionRegistry registry = new RoomSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/room/1/delta"));
+        registry.registerSubscription(subscribe("s1", "sub-1", "/topic/room/1/game/bet"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/room/1/delta"));
+
+        registry.unregisterSubscription(unsubscribe("s1", "sub-0"));
+        assertEquals(List.of("s2"), List.copyOf(registry.findSubscriptions(message("/topic/room/1/delta")).keySet()));
+
+        registry.unregisterAllSubscriptions("s1");
+        registry.unregisterAllSubscriptions("s2");
+        assertEquals(0, registry.getDestinationCount());
+        assertEquals(0, registry.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("测试通配符地址只按字面匹配")
+    void testPatternNotExpanded() {
+        RoomSubscriptionRegistry registry = new RoomSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/room/*/delta"));
+
+        assertTrue(registry.findSubscriptions(message("/topic/room/1/delta")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("测试同一地址大量订阅者的增删")
+    void testManySubscribersOnOneDestination() {
+        RoomSubscriptionRegistry registry = new RoomSubscriptionRegistry();
+        for (int i = 0; i < 1000; i++) {
+            registry.registerSubscription(subscribe("s" + i, "sub-0", "/topic/lobby"));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            registry.unregisterAllSubscriptions("s" + i);
+        }
+
+        MultiValueMap<String, String> result = registry.findSubscriptions(message("/topic/lobby"));
+        assertEquals(500, result.size());
+        assertEquals(List.of("sub-0"), result.get("s1"));
+        assertNull(result.get("s0"));
+    }
+
+    /**
+     * 与默认订阅表对比：10000个房间，每个房间4名玩家，每人订阅12个房间主题，向随机房间主题广播
+     * 运行：mvn test -Dtest=RoomSubscriptionRegistryTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("基准测试：10000个房间的广播查找耗时")
+    void benchmarkAgainstDefaultRegistry() {
+        int rooms = 10_000;
+        int playersPerRoom = 4;
+        SubscriptionRegistry defaultRegistry = new DefaultSubscriptionRegistry();
+        RoomSubscriptionRegistry roomRegistry = new RoomSubscriptionRegistry();
+        for (int room = 0; room < rooms; room++) {
+            for (int player = 0; player < playersPerRoom; player++) {
+                String sessionId = room + "-" + player;
+                for (int topic = 0; topic < ROOM_TOPICS.size(); topic++) {
+                    Message<?> subscribe = subscribe(sessionId, "sub-" + topic, "/topic/room/" + room + "/" + ROOM_TOPICS.get(topic));
+                    defaultRegistry.registerSubscription(subscribe);
+                    roomRegistry.registerSubscription(subscribe);
+                }
+            }
+        }
+
+        double defaultMicros = measure(defaultRegistry, 100, playersPerRoom, rooms);
+        double roomMicros = measure(roomRegistry, 100_000, playersPerRoom, rooms);
+        System.out.printf("订阅数: %d, 默认订阅表: %.2fμs/条, 按地址索引: %.2fμs/条%n",
+                rooms * playersPerRoom * ROOM_TOPICS.size(), defaultMicros, roomMicros);
+        assertTrue(roomMicros < defaultMicros);
+    }
+
+    /**
+     * 大厅主题重连风暴：N个会话订阅同一地址后全部断开重连，每次订阅变化的耗时不应随订阅者数量增长
+     * 运行：mvn test -Dtest=RoomSubscriptionRegistryTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("基准测试：同一地址大量订阅者的重连风暴")
+    void benchmarkLobbyReconnectStorm() {
+        double smallMicros = measureReconnectStorm(new RoomSubscriptionRegistry(), 2_000);
+        double largeMicros = measureReconnectStorm(new RoomSubscriptionRegistry(), 50_000);
+        double defaultMicros = measureReconnectStorm(new DefaultSubscriptionRegistry(), 50_000);
+        System.out.printf("大厅订阅者 2000: %.2fμs/次, 50000: %.2fμs/次, 默认订阅表 50000: %.2fμs/次%n",
+                smallMicros, largeMicros, defaultMicros);
+        // 整体复制时每次订阅变化的耗时与订阅者数量成正比（25倍），按项增删时应基本不变
+        assertTrue(largeMicros < smallMicros * 5);
+    }
+
+    private static double measureReconnectStorm(SubscriptionRegistry registry, int sessions) {
+        for (int i = 0; i < sessions; i++) {
+            registry.registerSubscription(subscribe("s" + i, "sub-0", "/topic/lobby"));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            registry.unregisterAllSubscriptions("s" + i);
+            registry.registerSubscription(subscribe("r" + i, "sub-0", "/topic/lobby"));
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / (sessions * 2);
+        assertEquals(sessions, registry.findSubscriptions(message("/topic/lobby")).size());
+        return micros;
+    }
+
+    private static double measure(SubscriptionRegistry registry, int messages, int expected, int rooms) {
+        Random random = new Random(42);
+        Message<?>[] batch = new Message<?>[messages];
+        for (int i = 0; i < messages; i++) {
+            batch[i] = message("/topic/room/" + random.nextInt(rooms) + "/" + ROOM_TOPICS.get(random.nextInt(ROOM_TOPICS.size())));
+        }
+        long start = System.nanoTime();
+        for (Message<?> message : batch) {
+            assertEquals(expected, registry.findSubscriptions(message).size());
+        }
+        return (System.nanoTime() - start) / 1000.0 / messages;
+    }
+
+    private static Message<?> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<?> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<?> message(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
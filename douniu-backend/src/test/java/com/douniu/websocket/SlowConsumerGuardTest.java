@@ -0,0 +1,60 @@
+package com.douniu.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 慢客户端背压策略测试类
+ */
+@DisplayName("慢客户端背压策略测试")
+class SlowConsumerGuardTest {
+
+    @Test
+    @DisplayName("测试积压未达到阈值时全部发送")
+    void testSendBelowThreshold() {
+        SlowConsumerGuard.SessionStats stats = new SlowConsumerGuard.SessionStats(null);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SlowConsumerGuard.Action.SEND, stats.onOutbound(true, 0, 4, 1000));
+        }
+        assertEquals(3, stats.getPending());
+
+        stats.onSent(1000);
+        assertEquals(2, stats.getPending());
+    }
+
+    @Test
+    @DisplayName("测试积压达到阈值后只丢弃非关键消息")
+    void testDropNonCritical() {
+        SlowConsumerGuard.SessionStats stats = backlogged(2);
+
+        assertEquals(SlowConsumerGuard.Action.DROP, stats.onOutbound(true, 100, 2, 1000));
+        assertEquals(SlowConsumerGuard.Action.SEND, stats.onOutbound(false, 200, 2, 1000));
+        assertEquals(3, stats.getPending());
+
+        // 积压消化后恢复发送
+        stats.onSent(1000);
+        stats.onSent(1000);
+        assertEquals(SlowConsumerGuard.Action.SEND, stats.onOutbound(true, 300, 2, 1000));
+    }
+
+    @Test
+    @DisplayName("测试积压持续超时后关闭会话")
+    void testCloseWhenBehindTooLong() {
+        SlowConsumerGuard.SessionStats stats = backlogged(2);
+
+        assertEquals(SlowConsumerGuard.Action.SEND, stats.onOutbound(false, 100, 2, 1000));
+        assertEquals(SlowConsumerGuard.Action.SEND, stats.onOutbound(false, 1100, 2, 1000));
+        assertEquals(SlowConsumerGuard.Action.CLOSE, stats.onOutbound(false, 1101, 2, 1000));
+    }
+
+    private static SlowConsumerGuard.SessionStats backlogged(int frames) {
+        SlowConsumerGuard.SessionStats stats = new SlowConsumerGuard.SessionStats(null);
+        for (int i = 0; i < frames; i++) {
+            stats.onOutbound(false, 0, frames, 1000);
+        }
+        return stats;
+    }
+}
@@ -4,6 +4,7 @@ import { ref } from 'vue'
 export const useGameStore = defineStore('game', () => {
   const room = ref(null)
   const players = ref([])
+  const roomVersion = ref(null) // 房间状态版本号（与服务端增量版本号对应）
   const currentGameRecord = ref(null)
   const gameCards = ref({}) // { userId: { cards: [], hiddenCard: {} } }
   const gameBets = ref({}) // { userId: betAmount }
@@ -19,6 +20,74 @@ export const useGameStore = defineStore('game', () => {
     players.value = playersData
   }
 
+  // 应用房间完整快照
+  const setRoomState = (state) => {
+    room.value = state.room
+    players.value = state.players
+    roomVersion.value = state.version
+  }
+
+  // 应用单条房间增量
+  const applyDelta = (delta) => {
+    const findPlayer = (userId) => players.value.find(p => p.userId === userId)
+    switch (delta.type) {
+      case 'JOIN':
+        players.value = players.value
+          .filter(p => p.userId !== delta.player.userId)
+          .concat(delta.player)
+          .sort((a, b) => a.seatNumber - b.seatNumber)
+        break
+      case 'LEAVE':
+        players.value = players.value.filter(p => p.userId !== delta.userId)
+        break
+      case 'ONLINE':
+      case 'OFFLINE': {
+        const player = findPlayer(delta.userId)
+        if (player) player.isOnline = delta.type === 'ONLINE'
+        break
+      }
+      case 'READY': {
+        const player = findPlayer(delta.userId)
+        if (player) player.isReady = true
+        break
+      }
+      case 'READY_RESET':
+        players.value.forEach(p => { p.isReady = false })
+        break
+      case 'DEALER':
+        players.value.forEach(p => { p.isDealer = p.userId === delta.userId ? 1 : 0 })
+        break
+      case 'ADMIN':
+        if (room.value) room.value = { ...room.value, adminId: delta.userId }
+        break
+      case 'ROOM':
+        room.value = { ...room.value, ...delta.room }
+        break
+      case 'SCORES':
+        players.value.forEach(p => {
+          if (delta.scores[p.userId] !== undefined) p.totalScore = delta.scores[p.userId]
+        })
+        break
+    }
+  }
+
+  // 应用一批房间增量（服务端按合并窗口发送，每批一个版本号），返回 false 表示版本不连续（需要重新拉取快照）
+  const applyRoomDelta = (batch) => {
+    if (roomVersion.value === null) {
+      return false
+    }
+    if (batch.version <= roomVersion.value) {
+      // 已包含在当前快照中
+      return true
+    }
+    if (batch.version !== roomVersion.value + 1) {
+      return false
+    }
+    batch.deltas.forEach(applyDelta)
+    roomVersion.value = batch.version
+    return true
+  }
+
   const setCurrentGameRecord = (record) => {
     currentGameRecord.value = record
   }
@@ -46,6 +115,7 @@ export const useGameStore = defineStore('game', () => {
   const reset = () => {
     room.value = null
     players.value = []
+    roomVersion.value = null
     currentGameRecord.value = null
     gameCards.value = {}
     gameBets.value = {}
@@ -57,6 +127,7 @@ export const useGameStore = defineStore('game', () => {
   return {
     room,
     players,
+    roomVersion,
     currentGameRecord,
     gameCards,
     gameBets,
@@ -65,6 +136,8 @@ export const useGameStore = defineStore('game', () => {
     gamePhase,
     setRoom,
     setPlayers,
+    setRoomState,
+    applyRoomDelta,
     setCurrentGameRecord,
     setGameCards,
     setGameBet,
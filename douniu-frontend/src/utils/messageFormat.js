@@ -0,0 +1,99 @@
+import api from '@/utils/api'
+
+// WebSocket紧凑消息编码（在 localStorage 中设置 wsMessageFormat=compact 启用，默认JSON）
+export const COMPACT_CONTENT_TYPE = 'application/vnd.douniu.compact+json'
+export const FORMAT_HEADER = 'x-message-format'
+// 消息压缩（浏览器支持 DecompressionStream 时声明，服务端对超过阈值的消息 deflate 压缩后 Base64 编码）
+export const ACCEPT_ENCODING_HEADER = 'x-accept-encoding'
+const supportsDeflate = typeof DecompressionStream !== 'undefined'
+
+let schema = null // null-未加载，false-加载失败（使用JSON）
+
+export const useCompactFormat = () => localStorage.getItem('wsMessageFormat') === 'compact'
+
+// 字典序号对应的别名（与服务端一致：0 -> A，25 -> Z，26 -> AA）
+const alias = (index) => {
+  let result = ''
+  let n = index + 1
+  while (n > 0) {
+    n--
+    result = String.fromCharCode(65 + (n % 26)) + result
+    n = Math.floor(n / 26)
+  }
+  return result
+}
+
+// 加载服务端字段字典
+export const loadMessageSchema = async () => {
+  if (schema !== null) {
+    return schema
+  }
+  try {
+    const response = await api.get('/message-schema')
+    if (response.data.code === 200) {
+      const data = response.data.data
+      const keysByAlias = {}
+      data.keys.forEach((key, index) => {
+        keysByAlias[alias(index)] = key
+      })
+      schema = { format: data.format, keysByAlias, cardKeys: new Set(data.cardKeys) }
+    } else {
+      schema = false
+    }
+  } catch (error) {
+    console.warn('加载消息字典失败，使用JSON', error)
+    schema = false
+  }
+  return schema
+}
+
+export const getMessageSchema = () => schema
+
+// CONNECT 帧中申请紧凑编码和压缩的头部
+export const getConnectHeaders = () => {
+  const headers = {}
+  if (useCompactFormat() && schema) {
+    headers[FORMAT_HEADER] = schema.format
+  }
+  if (supportsDeflate) {
+    headers[ACCEPT_ENCODING_HEADER] = 'deflate'
+  }
+  return headers
+}
+
+// 解压 Base64 编码的 deflate 消息体
+const inflate = async (body) => {
+  const bytes = Uint8Array.from(atob(body), c => c.charCodeAt(0))
+  const stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('deflate'))
+  return new Response(stream).text()
+}
+
+const expand = (node, cardValue) => {
+  if (Array.isArray(node)) {
+    return node.map(element => expand(element, cardValue))
+  }
+  if (cardValue && typeof node === 'number') {
+    const rank = node & 15
+    return { suit: node >> 4, rank, value: rank >= 11 ? 10 : rank }
+  }
+  if (node !== null && typeof node === 'object') {
+    const result = {}
+    for (const [key, value] of Object.entries(node)) {
+      const name = schema.keysByAlias[key] || key
+      result[name] = expand(value, schema.cardKeys.has(name))
+    }
+    return result
+  }
+  return node
+}
+
+// 按消息的 content-encoding 解压、按 content-type 解析消息体
+export const decodeMessage = async (message) => {
+  const body = message.headers['content-encoding'] === 'deflate' ? await inflate(message.body) : message.body
+  const data = JSON.parse(body)
+  const contentType = message.headers['content-type'] || ''
+  if (schema && contentType.startsWith(COMPACT_CONTENT_TYPE)) {
+    return expand(data, false)
+  }
+  return data
+}
@@ -1,5 +1,6 @@
 import { Client } from '@stomp/stompjs'
 import SockJS from 'sockjs-client'
+import { useCompactFormat, getMessageSchema, loadMessageSchema, getConnectHeaders, decodeMessage } from '@/utils/messageFormat'
 
 let stompClient = null
 let reconnectTimer = null
@@ -9,6 +10,96 @@ let reconnectAttempts = 0 // 重连次数
 const MAX_RECONNECT_ATTEMPTS = 10 // 最大重连次数
 const INITIAL_RECONNECT_DELAY = 2000 // 初始重连延迟（毫秒）
 const MAX_RECONNECT_DELAY = 30000 // 最大重连延迟（毫秒）
+const SLOW_CONSUMER_CLOSE_CODE = 4500 // 服务端因下行积压关闭连接（CloseStatus.SESSION_NOT_RELIABLE）
+
+// 断线续传：房间消息带序号（x-room-seq），重连后按收到的最大序号请求补发
+const ROOM_SEQ_HEADER = 'x-room-seq'
+const RESUME_TIMEOUT = 5000 // 等待补发的超时时间（毫秒），超时后不再暂存实时消息
+const roomSeqs = new Map() // roomId -> 收到的最大序号
+const replayFloors = new Map() // roomId -> 已补发到的序号，之后实时收到的不大于该序号的消息是重复消息
+const resumingRooms = new Map() // roomId -> 等待补发期间暂存的实时消息
+const roomHandlers = new Map() // 房间主题 -> 回调
+let roomResyncHandler = null
+
+const roomIdOf = (destination) => {
+  const match = /^\/topic\/room\/(\d+)\//.exec(destination)
+  return match ? match[1] : null
+}
+
+// 注册房间快照回调（落后太多、缓冲中已没有需要的消息时，服务端改发房间快照和对局快照）
+export const onRoomResync = (handler) => {
+  roomResyncHandler = handler
+}
+
+// 分发房间消息：等待补发期间先暂存，补发过的重复消息丢弃
+const dispatch = (destination, seq, data, callback) => {
+  const roomId = roomIdOf(destination)
+  if (roomId === null || seq === null) {
+    callback(data)
+    return
+  }
+  const pending = resumingRooms.get(roomId)
+  if (pending) {
+    pending.push({ destination, seq, data, callback })
+    return
+  }
+  if (seq <= (replayFloors.get(roomId) || 0)) {
+    return
+  }
+  roomSeqs.set(roomId, Math.max(seq, roomSeqs.get(roomId) || 0))
+  callback(data)
+}
+
+// 结束等待补发，按序号处理暂存的实时消息
+const releaseRoom = (roomId) => {
+  const pending = resumingRooms.get(roomId)
+  if (!pending) {
+    return
+  }
+  resumingRooms.delete(roomId)
+  pending.sort((a, b) => a.seq - b.seq)
+    .forEach(({ destination, seq, data, callback }) => dispatch(destination, seq, data, callback))
+}
+
+// 重连后为每个房间请求补发
+const resumeRooms = () => {
+  roomSeqs.forEach((lastSeq, roomId) => {
+    resumingRooms.set(roomId, [])
+    sendMessage('/app/room/resume', { roomId: Number(roomId), lastSeq })
+    setTimeout(() => releaseRoom(roomId), RESUME_TIMEOUT)
+  })
+}
+
+// 账号在其他地方登录：服务端只通知旧会话，断开后不再自动重连，避免把新会话挤掉
+const handleSessionReplaced = (response) => {
+  console.warn('当前连接已被新的登录替代', response)
+  disconnectWebSocket()
+  alert(response.message || '您的账号在其他地方登录，当前连接已断开')
+}
+
+// 处理补发：依次交给原主题的回调，或者应用房间快照
+const handleResume = (response) => {
+  if (response.code !== 200) {
+    return
+  }
+  const { roomId, seq, frames, snapshot, gameState } = response.data
+  const key = String(roomId)
+  if (frames) {
+    console.log('断线续传，补发消息数:', frames.length)
+    frames.forEach((frame) => {
+      const handler = roomHandlers.get(frame.destination)
+      if (handler) {
+        handler(frame.payload)
+      }
+    })
+  } else if (roomResyncHandler) {
+    console.log('断线时间过长，应用房间快照')
+    roomResyncHandler(roomId, snapshot, gameState)
+  }
+  replayFloors.set(key, seq)
+  roomSeqs.set(key, seq)
+  releaseRoom(key)
+}
 
 export const connectWebSocket = (token, onConnect, onError) => {
   // 如果已经连接，直接返回
@@ -33,6 +124,12 @@ export const connectWebSocket = (token, onConnect, onError) => {
     stompClient = null
   }
 
+  // 启用紧凑编码时先加载字段字典，加载完成（或失败回退JSON）后再连接
+  if (useCompactFormat() && getMessageSchema() === null) {
+    loadMessageSchema().finally(() => connectWebSocket(token, onConnect, onError))
+    return null
+  }
+
   // 重置重连状态
   isReconnecting = false
   reconnectAttempts = 0
@@ -44,6 +141,8 @@ export const connectWebSocket = (token, onConnect, onError) => {
   const socket = new SockJS(wsUrl)
   stompClient = new Client({
     webSocketFactory: () => socket,
+    // token 在 CONNECT 帧中校验，服务端据此绑定会话用户
+    connectHeaders: { ...getConnectHeaders(), token },
     reconnectDelay: 0, // 禁用自动重连，手动控制
     heartbeatIncoming: 4000, // 4秒
     heartbeatOutgoing: 4000, // 4秒
@@ -61,20 +160,18 @@ export const connectWebSocket = (token, onConnect, onError) => {
         reconnectTimer = null
       }
       
-      // 发送认证token（如果需要）
-      if (token) {
-        stompClient.publish({
-          destination: '/app/auth',
-          body: JSON.stringify({ token })
-        })
-      }
-
       // 启动心跳
       startHeartbeat()
 
+      subscribe('/user/queue/room/resume', handleResume)
+      subscribe('/user/queue/disconnect', handleSessionReplaced)
+
       if (onConnect) {
         onConnect(stompClient)
       }
+
+      // 重连时请求补发断线期间的房间消息（首次连接时没有序号记录）
+      resumeRooms()
     },
     onStompError: (frame) => {
       console.error('WebSocket STOMP错误', frame)
@@ -87,8 +184,8 @@ export const connectWebSocket = (token, onConnect, onError) => {
     onWebSocketClose: (event) => {
       console.log('WebSocket连接关闭', event)
       stopHeartbeat()
-      // 只有在非主动断开的情况下才重连
-      if (!event.wasClean) {
+      // 只有在非主动断开的情况下才重连；4500 是服务端因下行积压关闭的慢连接，重连后续传
+      if (!event.wasClean || event.code === SLOW_CONSUMER_CLOSE_CODE) {
         scheduleReconnect(token, onConnect, onError)
       }
     },
@@ -186,6 +283,12 @@ export const disconnectWebSocket = () => {
   }
   
   stopHeartbeat()
+
+  roomSeqs.clear()
+  replayFloors.clear()
+  resumingRooms.clear()
+  roomHandlers.clear()
+  roomResyncHandler = null
   
   if (stompClient) {
     try {
@@ -200,15 +303,21 @@ export const disconnectWebSocket = () => {
 export const subscribe = (destination, callback) => {
   if (stompClient && stompClient.connected) {
     console.log('订阅主题:', destination)
+    if (roomIdOf(destination) !== null) {
+      roomHandlers.set(destination, callback)
+    }
+    // 解压是异步的，同一订阅的消息按到达顺序串行处理
+    let queue = Promise.resolve()
     const subscription = stompClient.subscribe(destination, (message) => {
       console.log('收到消息，主题:', destination, '消息体:', message.body)
-      try {
-        const data = JSON.parse(message.body)
-        callback(data)
-      } catch (error) {
-        console.error('解析消息失败', error, '原始消息:', message.body)
-        callback(message.body)
-      }
+      const seq = message.headers[ROOM_SEQ_HEADER] ? Number(message.headers[ROOM_SEQ_HEADER]) : null
+      queue = queue
+        .then(() => decodeMessage(message))
+        .then((data) => dispatch(destination, seq, data, callback), (error) => {
+          console.error('解析消息失败', error, '原始消息:', message.body)
+          callback(message.body)
+        })
+        .catch((error) => console.error('处理消息失败', error))
     })
     console.log('订阅成功，subscription:', subscription)
     return subscription